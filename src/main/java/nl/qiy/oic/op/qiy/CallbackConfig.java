@@ -0,0 +1,75 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the handling of callbacks from the Qiy Node, will default to:
+ * <dl>
+ * <dt>asynchronous
+ * <dd>false
+ * <dt>workerThreads
+ * <dd>4
+ * <dt>queueCapacity
+ * <dd>1000
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class CallbackConfig {
+
+    public final Boolean asynchronous;
+    public final Integer workerThreads;
+    public final Integer queueCapacity;
+
+    /**
+     * Default constructor for CallbackConfig, using all the defaults
+     */
+    public CallbackConfig() {
+        this(null, null, null);
+    }
+
+    /**
+     * Constructor for CallbackConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param asynchronous
+     *            if true, a callback is answered as soon as it has been queued, the login is completed by a worker
+     *            thread. Needs the {@link CallbackProcessor} to be started, until then callbacks are handled
+     *            synchronously
+     * @param workerThreads
+     *            number of threads that complete the queued logins
+     * @param queueCapacity
+     *            maximum number of queued callbacks, callbacks that do not fit are answered with 503
+     */
+    // @formatter:off
+    @JsonCreator
+    public CallbackConfig(
+            @JsonProperty("asynchronous") Boolean asynchronous, 
+            @JsonProperty("workerThreads") Integer workerThreads,
+            @JsonProperty("queueCapacity") Integer queueCapacity) {// @formatter:on
+        super();
+        this.asynchronous = asynchronous == null ? Boolean.FALSE : asynchronous;
+        this.workerThreads = workerThreads == null ? Integer.valueOf(4) : workerThreads;
+        this.queueCapacity = queueCapacity == null ? Integer.valueOf(1000) : queueCapacity;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.qiy;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Completes the logins for callbacks that have been accepted from the Qiy Node, so that the node does not have to wait
+ * for the login to finish. Only active after {@link #start()} has been called and {@link CallbackConfig#asynchronous}
+ * is set, until then callbacks are handled synchronously.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class CallbackProcessor implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallbackProcessor.class);
+
+    /**
+     * Singleton object
+     */
+    private static final CallbackProcessor instance = new CallbackProcessor();
+
+    private volatile ThreadPoolExecutor executor;
+    private Meter rejected;
+    private Timer processing;
+
+    /**
+     * Default constructor for CallbackProcessor
+     */
+    private CallbackProcessor() {
+        super();
+    }
+
+    /**
+     * Returns the singleton object
+     * 
+     * @return see description
+     */
+    public static CallbackProcessor getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true if {@link CallbackConfig#asynchronous} is set and this processor has been started, otherwise
+     *         callbacks should be handled synchronously
+     */
+    boolean isActive() {
+        return executor != null;
+    }
+
+    /**
+     * Queues the job for one of the worker threads, or runs it on the calling thread if asynchronous processing is not
+     * active (see {@link #isActive()})
+     * 
+     * @param job
+     *            what should be done
+     * @return false if the job was not queued because the queue is full
+     */
+    boolean submit(Runnable job) {
+        ThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            job.run();
+            return true;
+        }
+        try {
+            pool.execute(() -> {
+                try (Timer.Context ctx = processing.time()) {
+                    job.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            LOGGER.warn("Callback queue is full ({} queued)", pool.getQueue().size());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        CallbackConfig config = OpSdkSpiImplConfiguration.getInstance().callbackConfig;
+        if (executor != null) {
+            return;
+        }
+        if (!config.asynchronous.booleanValue()) {
+            LOGGER.info("Callbacks are handled synchronously");
+            return;
+        }
+        int threads = config.workerThreads.intValue();
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> new Thread(r, "CallbackProcessor-" + count.incrementAndGet());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity.intValue()), threadFactory);
+
+        MetricRegistry registry = Metrics.getRegistry();
+        Metrics.gauge(MetricRegistry.name(CallbackProcessor.class, "queued"), () -> pool.getQueue().size());
+        Metrics.gauge(MetricRegistry.name(CallbackProcessor.class, "active"), pool::getActiveCount);
+        rejected = registry.meter(MetricRegistry.name(CallbackProcessor.class, "rejected"));
+        processing = registry.timer(MetricRegistry.name(CallbackProcessor.class, "processing"));
+        executor = pool;
+        LOGGER.info("Callbacks are handled asynchronously by {} threads", threads);
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (executor == null) {
+            return;
+        }
+        ThreadPoolExecutor pool = executor;
+        executor = null;
+        pool.shutdown();
+        if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOGGER.warn("{} queued callbacks were not processed", pool.shutdownNow().size());
+        }
+        LOGGER.info("Shut down callback processing");
+    }
+}
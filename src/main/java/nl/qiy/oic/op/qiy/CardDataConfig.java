@@ -0,0 +1,76 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for reading the card share actions, will default to:
+ * <dl>
+ * <dt>refreshIntervalInSeconds
+ * <dd>43200 (12 hours)
+ * <dt>minRetryDelayInSeconds
+ * <dd>30
+ * <dt>maxRetryDelayInSeconds
+ * <dd>3600
+ * </dl>
+ * After a failed refresh the retry delay starts at the minimum and doubles after every failure until it reaches the
+ * maximum.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class CardDataConfig {
+
+    public final Integer refreshIntervalInSeconds;
+    public final Integer minRetryDelayInSeconds;
+    public final Integer maxRetryDelayInSeconds;
+
+    /**
+     * Default constructor for CardDataConfig, using all the defaults
+     */
+    public CardDataConfig() {
+        this(null, null, null);
+    }
+
+    /**
+     * Constructor for CardDataConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param refreshIntervalInSeconds
+     *            time between successful refreshes
+     * @param minRetryDelayInSeconds
+     *            delay before the first retry after a failed refresh
+     * @param maxRetryDelayInSeconds
+     *            maximum delay between retries
+     */
+    // @formatter:off
+    @JsonCreator
+    public CardDataConfig(
+            @JsonProperty("refreshIntervalInSeconds") Integer refreshIntervalInSeconds, 
+            @JsonProperty("minRetryDelayInSeconds") Integer minRetryDelayInSeconds,
+            @JsonProperty("maxRetryDelayInSeconds") Integer maxRetryDelayInSeconds) {// @formatter:on
+        super();
+        this.refreshIntervalInSeconds = refreshIntervalInSeconds == null ? Integer.valueOf(43_200)
+                : refreshIntervalInSeconds;
+        this.minRetryDelayInSeconds = minRetryDelayInSeconds == null ? Integer.valueOf(30) : minRetryDelayInSeconds;
+        this.maxRetryDelayInSeconds = maxRetryDelayInSeconds == null ? Integer.valueOf(3600) : maxRetryDelayInSeconds;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the share actions of our card, as read from the card API. A new snapshot replaces the previous
+ * one as a whole.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class CardShareData {
+    final List<Map<String, Object>> actions;
+    final ConnectTokenBodyTemplate bodyTemplate;
+    final Instant verifiedAt;
+
+    /**
+     * Constructor for CardShareData
+     * 
+     * @param actions
+     *            the share actions, will be copied
+     * @param verifiedAt
+     *            the moment the card API confirmed these actions
+     */
+    CardShareData(List<Map<String, Object>> actions, Instant verifiedAt) {
+        super();
+        this.actions = Collections.unmodifiableList(new ArrayList<>(actions));
+        this.bodyTemplate = new ConnectTokenBodyTemplate(this.actions);
+        this.verifiedAt = verifiedAt;
+    }
+
+    /**
+     * Private constructor that shares the (already unmodifiable) actions and template with another snapshot
+     * 
+     * @param source
+     *            the snapshot whose actions are reused
+     * @param verifiedAt
+     *            the moment the card API confirmed these actions
+     */
+    private CardShareData(CardShareData source, Instant verifiedAt) {
+        super();
+        this.actions = source.actions;
+        this.bodyTemplate = source.bodyTemplate;
+        this.verifiedAt = verifiedAt;
+    }
+
+    /**
+     * @param now
+     *            the moment the card API confirmed the actions have not changed
+     * @return a snapshot with the same actions as this one, verified at the given moment
+     */
+    CardShareData verified(Instant now) {
+        return new CardShareData(this, now);
+    }
+
+    /**
+     * @return the time since the actions were last confirmed by the card API
+     */
+    Duration getAge() {
+        return Duration.between(verifiedAt, Instant.now());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.net.URL;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Refreshes the card share data by calling {@link QiyNodeClient#readCardMessage(URL)} and schedules the next refresh:
+ * after the configured interval if the refresh succeeded, with exponential back-off (and some jitter) if it failed.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+class CardShareDataRefresher implements Runnable {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CardShareDataRefresher.class);
+
+    private final URL baseDappreURL;
+    private final ScheduledExecutorService scheduler;
+    private int failures = 0;
+
+    /**
+     * Constructor for CardShareDataRefresher
+     * 
+     * @param baseDappreURL
+     *            the base URL for Dappre
+     * @param scheduler
+     *            where the next refresh is scheduled
+     */
+    CardShareDataRefresher(URL baseDappreURL, ScheduledExecutorService scheduler) {
+        super();
+        this.baseDappreURL = baseDappreURL;
+        this.scheduler = scheduler;
+        Metrics.gauge(MetricRegistry.name(QiyNodeClient.class, "cardShareData", "ageInSeconds"),
+                QiyNodeClient::getCardShareDataAgeInSeconds);
+    }
+
+    @Override
+    public void run() {
+        boolean refreshed;
+        try {
+            refreshed = QiyNodeClient.readCardMessage(baseDappreURL);
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while refreshing the card share data", e);
+            refreshed = false;
+        }
+        long delay = nextDelayInSeconds(refreshed);
+        LOGGER.info("Next refresh of the card share data in {} s", delay);
+        scheduler.schedule(this, delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param refreshed
+     *            whether the last refresh succeeded
+     * @return the number of seconds to wait for the next refresh
+     */
+    private long nextDelayInSeconds(boolean refreshed) {
+        CardDataConfig config = OpSdkSpiImplConfiguration.getInstance().cardDataConfig;
+        if (refreshed) {
+            failures = 0;
+            return config.refreshIntervalInSeconds.longValue();
+        }
+        // else
+        long max = config.maxRetryDelayInSeconds.longValue();
+        long delay = Math.min(max, config.minRetryDelayInSeconds.longValue() << Math.min(failures, 20));
+        failures++;
+        // up to 20% jitter, so that not all instances retry at the same moment
+        long jitter = ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+        return Math.min(max, delay + jitter);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * A circuit breaker: records the outcome of the last {@link CircuitBreakerConfig#windowSize} calls and opens when too
+ * many of those failed or were slow. While open, calls are refused with a {@link NodeUnavailableException} without
+ * being made. After {@link CircuitBreakerConfig#openDurationInSeconds} a single probe call is let through (half open),
+ * its outcome decides whether the breaker closes or opens again.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+class CircuitBreaker {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * Permit of a call that was not a probe
+     */
+    private static final Object NORMAL_CALL = new Object();
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    /**
+     * Outcomes of the most recent calls, used as a ring buffer. Guarded by this
+     */
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int next = 0;
+    private int recorded = 0;
+    private int failed = 0;
+    private int slow = 0;
+
+    /**
+     * The permit of the probe that is being made while half open, null if none. Guarded by this
+     */
+    private Object probe;
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    private final Meter rejected;
+    private final Meter failures;
+
+    /**
+     * Constructor for CircuitBreaker
+     * 
+     * @param name
+     *            used in logging and for the metrics
+     * @param config
+     *            thresholds and durations
+     */
+    CircuitBreaker(String name, CircuitBreakerConfig config) {
+        super();
+        this.name = name;
+        this.minimumCalls = config.minimumCalls.intValue();
+        this.failureRateThreshold = config.failureRateThreshold.intValue();
+        this.slowCallRateThreshold = config.slowCallRateThreshold.intValue();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.slowCallDurationInMillis.longValue());
+        this.openNanos = TimeUnit.SECONDS.toNanos(config.openDurationInSeconds.longValue());
+        this.failedCalls = new boolean[config.windowSize.intValue()];
+        this.slowCalls = new boolean[config.windowSize.intValue()];
+
+        MetricRegistry registry = Metrics.getRegistry();
+        Metrics.gauge(MetricRegistry.name(CircuitBreaker.class, name, "state"), () -> state.name());
+        rejected = registry.meter(MetricRegistry.name(CircuitBreaker.class, name, "rejected"));
+        failures = registry.meter(MetricRegistry.name(CircuitBreaker.class, name, "failures"));
+    }
+
+    /**
+     * Makes the call, unless the breaker is open
+     * 
+     * @param call
+     *            the call to be made
+     * @param isFailure
+     *            tells if the result of a call that did not throw an exception should count as a failure
+     * @param <T>
+     *            result type
+     * @return the result of the call
+     * @throws NodeUnavailableException
+     *             if the breaker is open
+     */
+    <T> T call(Supplier<T> call, Predicate<T> isFailure) {
+        Object permit = acquirePermit();
+        if (permit == null) {
+            rejected.mark();
+            throw new NodeUnavailableException("Circuit breaker " + name + " is open");
+        }
+        long start = System.nanoTime();
+        // anything that is thrown (including an Error) counts as a failure
+        boolean failure = true;
+        try {
+            T result = call.get();
+            failure = isFailure.test(result);
+            return result;
+        } finally {
+            onResult(permit, failure, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return false if the breaker is open and will not let a probe call through yet
+     */
+    boolean isAvailable() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= openNanos;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * @return {@link #NORMAL_CALL}, a new probe permit if this call is the probe of a half open breaker, or null if
+     *         the call is not permitted
+     */
+    private Object acquirePermit() {
+        if (state == State.CLOSED) {
+            return NORMAL_CALL;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return null;
+                }
+                transition(State.HALF_OPEN, "open for " + TimeUnit.NANOSECONDS.toSeconds(openNanos) + " s");
+            }
+            if (state == State.CLOSED) {
+                // closed by a probe in the mean time
+                return NORMAL_CALL;
+            }
+            // half open, let a single probe through
+            if (probe != null) {
+                return null;
+            }
+            probe = new Object();
+            return probe;
+        }
+    }
+
+    private synchronized void onResult(Object permit, boolean failure, long durationNanos) {
+        boolean slowCall = durationNanos > slowCallNanos;
+        if (failure) {
+            failures.mark();
+        }
+        if (permit == probe) {
+            probe = null;
+            if (failure || slowCall) {
+                transition(State.OPEN, failure ? "the probe failed" : "the probe was slow");
+            } else {
+                transition(State.CLOSED, "the probe succeeded");
+            }
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            // a call that was made before the breaker opened, only the probe decides
+            return;
+        }
+        // else closed (or open, when the call was permitted before another call opened the breaker)
+        if (recorded == failedCalls.length) {
+            failed -= failedCalls[next] ? 1 : 0;
+            slow -= slowCalls[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failedCalls[next] = failure;
+        slowCalls[next] = slowCall;
+        failed += failure ? 1 : 0;
+        slow += slowCall ? 1 : 0;
+        next = (next + 1) % failedCalls.length;
+
+        boolean tooManyFailures = failed * 100 >= failureRateThreshold * recorded;
+        boolean tooManySlowCalls = slow * 100 >= slowCallRateThreshold * recorded;
+        if (state == State.CLOSED && recorded >= minimumCalls && (tooManyFailures || tooManySlowCalls)) {
+            transition(State.OPEN, failed + " of " + recorded + " calls failed, " + slow + " slow");
+        }
+    }
+
+    /**
+     * Changes the state, must be called while holding the lock on this
+     * 
+     * @param newState
+     *            the new state
+     * @param reason
+     *            why, for the log
+     */
+    private void transition(State newState, String reason) {
+        LOGGER.warn("Circuit breaker {} changes from {} to {} ({})", name, state, newState, reason);
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            // start with a clean slate
+            next = 0;
+            recorded = 0;
+            failed = 0;
+            slow = 0;
+        }
+        state = newState;
+    }
+}
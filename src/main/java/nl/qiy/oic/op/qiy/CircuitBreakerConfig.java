@@ -0,0 +1,95 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the circuit breaker around the calls to the Qiy Node, will default to:
+ * <dl>
+ * <dt>windowSize
+ * <dd>20 (the number of most recent calls that the rates are calculated over)
+ * <dt>minimumCalls
+ * <dd>10 (the breaker does not open before this many calls have been recorded)
+ * <dt>failureRateThreshold
+ * <dd>50 (percent)
+ * <dt>slowCallRateThreshold
+ * <dd>80 (percent)
+ * <dt>slowCallDurationInMillis
+ * <dd>2000
+ * <dt>openDurationInSeconds
+ * <dd>30 (after this time a single probe call is let through)
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class CircuitBreakerConfig {
+
+    public final Integer windowSize;
+    public final Integer minimumCalls;
+    public final Integer failureRateThreshold;
+    public final Integer slowCallRateThreshold;
+    public final Integer slowCallDurationInMillis;
+    public final Integer openDurationInSeconds;
+
+    /**
+     * Default constructor for CircuitBreakerConfig, using all the defaults
+     */
+    public CircuitBreakerConfig() {
+        this(null, null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for CircuitBreakerConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param windowSize
+     *            the number of most recent calls that the rates are calculated over
+     * @param minimumCalls
+     *            the breaker does not open before this many calls have been recorded
+     * @param failureRateThreshold
+     *            percentage of failed calls at which the breaker opens
+     * @param slowCallRateThreshold
+     *            percentage of slow calls at which the breaker opens
+     * @param slowCallDurationInMillis
+     *            calls that take longer than this are slow
+     * @param openDurationInSeconds
+     *            time the breaker stays open before a probe call is let through
+     */
+    // @formatter:off
+    @JsonCreator
+    public CircuitBreakerConfig(
+            @JsonProperty("windowSize") Integer windowSize, 
+            @JsonProperty("minimumCalls") Integer minimumCalls,
+            @JsonProperty("failureRateThreshold") Integer failureRateThreshold,
+            @JsonProperty("slowCallRateThreshold") Integer slowCallRateThreshold,
+            @JsonProperty("slowCallDurationInMillis") Integer slowCallDurationInMillis,
+            @JsonProperty("openDurationInSeconds") Integer openDurationInSeconds) {// @formatter:on
+        super();
+        this.windowSize = windowSize == null ? Integer.valueOf(20) : windowSize;
+        this.minimumCalls = minimumCalls == null ? Integer.valueOf(10) : minimumCalls;
+        this.failureRateThreshold = failureRateThreshold == null ? Integer.valueOf(50) : failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold == null ? Integer.valueOf(80) : slowCallRateThreshold;
+        this.slowCallDurationInMillis = slowCallDurationInMillis == null ? Integer.valueOf(2000)
+                : slowCallDurationInMillis;
+        this.openDurationInSeconds = openDurationInSeconds == null ? Integer.valueOf(30) : openDurationInSeconds;
+    }
+}
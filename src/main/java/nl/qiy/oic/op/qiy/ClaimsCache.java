@@ -0,0 +1,233 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+
+import nl.qiy.oic.op.domain.StandardClaims;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
+
+/**
+ * Cache of the users' claims, keyed by subject (pid). The claims of a {@link QiyOAuthUser} are transient, so they are
+ * lost when the user is serialized or copied; this cache keeps them. Claims are fetched from the card that the node
+ * holds for the connection: right after the login (see {@link #prefetch(String, URI)}) and again in the background
+ * when they are used after {@link ClaimsCacheConfig#refreshAfterInSeconds}, so that issuing tokens does not have to
+ * wait for the node.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class ClaimsCache {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClaimsCache.class);
+
+    /**
+     * The fields of a card that {@link QiyOAuthUser#toClaims(String, Map)} uses
+     */
+    private static final Set<String> CARD_FIELDS = ImmutableSet.of("firstName", "lastName", "emailAddress",
+            "mobileNumber", "websiteURL", "address", "lastUpdatedDate");
+
+    private static LoadingCache<Subject, Optional<StandardClaims>> cache;
+    private static ThreadPoolExecutor executor;
+    private static boolean prefetch;
+    private static Function<URI, Object> references;
+
+    /**
+     * Key of the cache. Only the pid is used for equality, the connection is carried along so the claims can be
+     * (re)loaded
+     */
+    private static final class Subject {
+        private final String pid;
+        private final URI connectionUri;
+
+        private Subject(String pid, URI connectionUri) {
+            this.pid = pid;
+            this.connectionUri = connectionUri;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Subject && pid.equals(((Subject) obj).pid);
+        }
+
+        @Override
+        public int hashCode() {
+            return pid.hashCode();
+        }
+    }
+
+    /**
+     * Utility class, no need to instantiate
+     */
+    private ClaimsCache() {
+        super();
+    }
+
+    private static synchronized LoadingCache<Subject, Optional<StandardClaims>> getCache() {
+        if (cache == null) {
+            init(OpSdkSpiImplConfiguration.getInstance().claimsCacheConfig,
+                    uri -> QiyNodeClient.get(uri, Object.class));
+        }
+        return cache;
+    }
+
+    /**
+     * (Re)creates the cache, the previous one (if any) is dropped
+     * 
+     * @param config
+     *            the configuration of the cache
+     * @param fetcher
+     *            gets the JSON body (as a Map, List, etc.) of the connection's references from the node
+     */
+    static synchronized void init(ClaimsCacheConfig config, Function<URI, Object> fetcher) {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        int threads = config.threads.intValue();
+        AtomicInteger count = new AtomicInteger();
+        // fetching in the background is an optimisation, so when there's too much of it some is skipped
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), r -> {
+                    Thread thread = new Thread(r, "ClaimsCache-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        prefetch = config.prefetch.booleanValue();
+        references = fetcher;
+        CacheLoader<Subject, Optional<StandardClaims>> loader = CacheLoader
+                .from(subject -> Optional.ofNullable(load(subject.pid, subject.connectionUri)));
+        // @formatter:off
+        LoadingCache<Subject, Optional<StandardClaims>> tmp = CacheBuilder.newBuilder()
+                .maximumSize(config.maximumSize.longValue())
+                .expireAfterWrite(config.ttlInSeconds.longValue(), TimeUnit.SECONDS)
+                .refreshAfterWrite(config.refreshAfterInSeconds.longValue(), TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener(CacheMetrics.countingRemovals("claims"))
+                .build(CacheLoader.asyncReloading(loader, executor)); // @formatter:on
+        // rough estimate: the pid, a dozen short strings and the address
+        CacheMetrics.register("claims", tmp, 1500L);
+        cache = tmp;
+    }
+
+    /**
+     * Fetches the card of the user from the node. The references of the connection should be the card that was shared
+     * (a JSON object with fields like firstName and emailAddress), anything else is refused rather than turned into
+     * empty claims.
+     * 
+     * @param pid
+     *            the subject
+     * @param connectionUri
+     *            the connection for the subject
+     * @return the claims of the subject
+     * @throws IllegalStateException
+     *             if the node did not return a card
+     */
+    static StandardClaims load(String pid, URI connectionUri) {
+        QiyConnection connection = ConnectionCache.get(connectionUri);
+        URI referenceUri = connection == null || connection.links == null ? null : connection.links.get("references");
+        if (referenceUri == null) {
+            throw new IllegalStateException("No references for connection " + connectionUri);
+        }
+        Object body = references.apply(referenceUri);
+        if (!(body instanceof Map) || Collections.disjoint(((Map<?, ?>) body).keySet(), CARD_FIELDS)) {
+            String shape = body == null ? "nothing" : body.getClass().getSimpleName();
+            throw new IllegalStateException("Node did not return a card for " + pid + " but " + shape);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> card = (Map<String, Object>) body;
+        return QiyOAuthUser.toClaims(pid, card);
+    }
+
+    /**
+     * Does not go to the node, see {@link #prefetch(String, URI)}
+     * 
+     * @param pid
+     *            the subject
+     * @return the cached claims, or null if they are unknown
+     */
+    static StandardClaims getIfPresent(String pid) {
+        Optional<StandardClaims> claims = getCache().getIfPresent(new Subject(pid, null));
+        return claims == null ? null : claims.orElse(null);
+    }
+
+    /**
+     * Stores the claims that were gotten elsewhere
+     * 
+     * @param pid
+     *            the subject
+     * @param connectionUri
+     *            the connection for the subject, used to refresh the claims
+     * @param claims
+     *            the claims, null if the subject has none
+     */
+    static void put(String pid, URI connectionUri, StandardClaims claims) {
+        getCache().put(new Subject(pid, connectionUri), Optional.ofNullable(claims));
+    }
+
+    /**
+     * @param pid
+     *            the subject whose claims are no longer valid
+     */
+    static void invalidate(String pid) {
+        getCache().invalidate(new Subject(pid, null));
+    }
+
+    /**
+     * Fetches the claims in the background (if so configured, off by default, and they are not in the cache yet)
+     * 
+     * @param pid
+     *            the subject
+     * @param connectionUri
+     *            the connection for the subject
+     */
+    static void prefetch(String pid, URI connectionUri) {
+        LoadingCache<Subject, Optional<StandardClaims>> claims = getCache();
+        if (!prefetch) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                claims.getUnchecked(new Subject(pid, connectionUri));
+            } catch (RuntimeException e) {
+                LOGGER.info("Could not prefetch the claims for {}", pid, e);
+            }
+        });
+    }
+}
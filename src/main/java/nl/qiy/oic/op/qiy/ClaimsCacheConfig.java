@@ -0,0 +1,89 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the cache of the users' claims. Will default to:
+ * <dl>
+ * <dt>maximumSize
+ * <dd>10000
+ * <dt>ttlInSeconds
+ * <dd>3600
+ * <dt>refreshAfterInSeconds
+ * <dd>600
+ * <dt>prefetch
+ * <dd>false
+ * <dt>threads
+ * <dd>2
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class ClaimsCacheConfig {
+
+    public final Long maximumSize;
+    public final Integer ttlInSeconds;
+    public final Integer refreshAfterInSeconds;
+    public final Boolean prefetch;
+    public final Integer threads;
+
+    /**
+     * Default constructor for ClaimsCacheConfig, using all the defaults
+     */
+    public ClaimsCacheConfig() {
+        this(null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for ClaimsCacheConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param maximumSize
+     *            maximum number of users in the cache
+     * @param ttlInSeconds
+     *            the claims are removed after this time
+     * @param refreshAfterInSeconds
+     *            the claims are fetched again in the background when they are used after this time, should be less
+     *            than ttlInSeconds
+     * @param prefetch
+     *            if true, the claims are fetched as soon as the user has logged in, which costs an extra call to the
+     *            node per login; when false the claims that came with the login are used (and refreshed)
+     * @param threads
+     *            number of threads that fetch (and refresh) the claims in the background
+     */
+    // @formatter:off
+    @JsonCreator
+    public ClaimsCacheConfig(
+            @JsonProperty("maximumSize") Long maximumSize, 
+            @JsonProperty("ttlInSeconds") Integer ttlInSeconds,
+            @JsonProperty("refreshAfterInSeconds") Integer refreshAfterInSeconds,
+            @JsonProperty("prefetch") Boolean prefetch,
+            @JsonProperty("threads") Integer threads) {// @formatter:on
+        super();
+        this.maximumSize = maximumSize == null ? Long.valueOf(10_000L) : maximumSize;
+        this.ttlInSeconds = ttlInSeconds == null ? Integer.valueOf(3600) : ttlInSeconds;
+        this.refreshAfterInSeconds = refreshAfterInSeconds == null ? Integer.valueOf(600) : refreshAfterInSeconds;
+        this.prefetch = prefetch == null ? Boolean.FALSE : prefetch;
+        this.threads = threads == null ? Integer.valueOf(2) : threads;
+    }
+}
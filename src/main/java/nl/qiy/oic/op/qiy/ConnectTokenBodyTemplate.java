@@ -0,0 +1,145 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The body of the request for a connect token, pre-serialized. Everything but the callback URI and the body of the
+ * callback is the same for every login, so that part is serialized once (per version of the card share actions) and
+ * the per-login values are spliced in. The result looks like:
+ * 
+ * <pre>
+ * {"actions":[{"key":"callback","method":"POST","type":"application/octet-stream","uri":"...","body":"..."},
+ *             ...the card share actions...]}
+ * </pre>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class ConnectTokenBodyTemplate {
+    private static final ObjectWriter LIST_WRITER = new ObjectMapper().writerFor(List.class);
+    // @formatter:off
+    private static final byte[] PREFIX = ("{\"actions\":[{\"key\":\"callback\",\"method\":\"POST\",\"type\":\"" 
+            + MediaType.APPLICATION_OCTET_STREAM + "\",\"uri\":\"").getBytes(StandardCharsets.UTF_8);
+    // @formatter:on
+    private static final byte[] URI_TO_BODY = "\",\"body\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACTIONS = "{\"actions\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CALLBACK_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Template without card share actions
+     */
+    static final ConnectTokenBodyTemplate EMPTY = new ConnectTokenBodyTemplate(Collections.emptyList());
+
+    /**
+     * Everything after the callback action: the card share actions and the closing brackets
+     */
+    private final byte[] suffix;
+
+    /**
+     * The whole body when there is no callback action, only the card share actions
+     */
+    private final byte[] withoutCallback;
+
+    /**
+     * Constructor for ConnectTokenBodyTemplate
+     * 
+     * @param shareActions
+     *            the actions that are added after the callback action
+     * @throws IllegalArgumentException
+     *             if the actions cannot be serialized
+     */
+    ConnectTokenBodyTemplate(List<Map<String, Object>> shareActions) {
+        super();
+        if (shareActions.isEmpty()) {
+            suffix = "]}".getBytes(StandardCharsets.UTF_8);
+            withoutCallback = "{\"actions\":[]}".getBytes(StandardCharsets.UTF_8);
+            return;
+        }
+        // else
+        byte[] list;
+        try {
+            list = LIST_WRITER.writeValueAsBytes(shareActions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+        // replace the list's opening bracket with a comma and close the object
+        suffix = new byte[list.length + 1];
+        suffix[0] = ',';
+        System.arraycopy(list, 1, suffix, 1, list.length - 1);
+        suffix[list.length] = '}';
+        // the list as is, wrapped in the object
+        withoutCallback = new byte[ACTIONS.length + list.length + 1];
+        int pos = append(withoutCallback, 0, ACTIONS);
+        pos = append(withoutCallback, pos, list);
+        withoutCallback[pos] = '}';
+    }
+
+    /**
+     * Creates the body for the connect token request
+     * 
+     * @param callbackUri
+     *            the URI the node should call once a connection has been made
+     * @param callbackBody
+     *            the body the node should send to the callback URI, will be Base64 encoded
+     * @return the JSON as UTF-8 bytes
+     */
+    byte[] render(String callbackUri, byte[] callbackBody) {
+        byte[] uri = BufferRecyclers.getJsonStringEncoder().quoteAsUTF8(callbackUri);
+        byte[] body = Base64.getEncoder().encode(callbackBody);
+
+        byte[] result = new byte[PREFIX.length + uri.length + URI_TO_BODY.length + body.length + CALLBACK_END.length
+                + suffix.length];
+        int pos = append(result, 0, PREFIX);
+        pos = append(result, pos, uri);
+        pos = append(result, pos, URI_TO_BODY);
+        pos = append(result, pos, body);
+        pos = append(result, pos, CALLBACK_END);
+        append(result, pos, suffix);
+        return result;
+    }
+
+    /**
+     * Creates the body for a connect token request without a callback, for when logins are completed from the node's
+     * event stream
+     * 
+     * @return the JSON as UTF-8 bytes
+     */
+    byte[] render() {
+        return withoutCallback.clone();
+    }
+
+    private static int append(byte[] target, int pos, byte[] source) {
+        System.arraycopy(source, 0, target, pos, source.length);
+        return pos + source.length;
+    }
+}
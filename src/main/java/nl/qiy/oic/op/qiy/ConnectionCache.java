@@ -0,0 +1,156 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
+
+/**
+ * Cache of the connections' metadata ({@link QiyConnection}), shared by all instances of {@link QiyOAuthUser}, so that
+ * a user that logs in again does not cost another signed call to the node. A connection is kept for the configured
+ * time, but never after its {@link QiyConnection#activeUntil}.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class ConnectionCache {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionCache.class);
+
+    private static LoadingCache<URI, QiyConnection> cache;
+    private static ThreadPoolExecutor prefetcher;
+
+    /**
+     * Utility class, no need to instantiate
+     */
+    private ConnectionCache() {
+        super();
+    }
+
+    private static synchronized LoadingCache<URI, QiyConnection> getCache() {
+        if (cache == null) {
+            init(OpSdkSpiImplConfiguration.getInstance().connectionCacheConfig,
+                    uri -> QiyNodeClient.get(uri, QiyConnection.class));
+        }
+        return cache;
+    }
+
+    /**
+     * (Re)creates the cache, the previous one (if any) is dropped
+     * 
+     * @param config
+     *            the configuration of the cache
+     * @param fetcher
+     *            gets the connection from the node, may return null
+     */
+    static synchronized void init(ConnectionCacheConfig config, Function<URI, QiyConnection> fetcher) {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+        int threads = config.prefetchThreads.intValue();
+        AtomicInteger count = new AtomicInteger();
+        // prefetching is an optimisation, so when there's too much of it some is skipped
+        prefetcher = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), r -> {
+                    Thread thread = new Thread(r, "ConnectionCache-prefetch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        // @formatter:off
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(config.maximumSize.longValue())
+                .expireAfterWrite(config.ttlInSeconds.longValue(), TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener(CacheMetrics.countingRemovals("connections"))
+                .build(CacheLoader.from(fetcher::apply)); // @formatter:on
+        // rough estimate: the URI, the dates and a handful of links
+        CacheMetrics.register("connections", cache, 1500L);
+    }
+
+    /**
+     * Gets the connection from the cache, fetching it from the node if it isn't there (or no longer active)
+     * 
+     * @param connectionUri
+     *            the URI of the connection
+     * @return the connection or null if the node didn't return it
+     */
+    static QiyConnection get(URI connectionUri) {
+        LoadingCache<URI, QiyConnection> connections = getCache();
+        QiyConnection connection = connections.getIfPresent(connectionUri);
+        if (connection != null && !isActive(connection)) {
+            connections.invalidate(connectionUri);
+        }
+        try {
+            connection = connections.getUnchecked(connectionUri);
+        } catch (InvalidCacheLoadException e) { // NOSONAR, the loader returned null
+            LOGGER.debug("Node did not return connection {}", connectionUri);
+            return null;
+        } catch (UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        }
+        if (!isActive(connection)) {
+            // it's what the node says, but don't keep it
+            connections.invalidate(connectionUri);
+        }
+        return connection;
+    }
+
+    /**
+     * Fetches the connection in the background, so that it is in the cache when it is needed
+     * 
+     * @param connectionUri
+     *            the URI of the connection
+     */
+    static void prefetch(URI connectionUri) {
+        getCache();
+        prefetcher.execute(() -> {
+            try {
+                get(connectionUri);
+            } catch (RuntimeException e) {
+                LOGGER.info("Could not prefetch connection {}", connectionUri, e);
+            }
+        });
+    }
+
+    private static boolean isActive(QiyConnection connection) {
+        Date activeUntil = connection.activeUntil;
+        return activeUntil == null || activeUntil.getTime() > System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the cache of the connections' metadata. Will default to:
+ * <dl>
+ * <dt>maximumSize
+ * <dd>10000
+ * <dt>ttlInSeconds
+ * <dd>3600
+ * <dt>prefetchThreads
+ * <dd>2
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class ConnectionCacheConfig {
+
+    public final Long maximumSize;
+    public final Integer ttlInSeconds;
+    public final Integer prefetchThreads;
+
+    /**
+     * Default constructor for ConnectionCacheConfig, using all the defaults
+     */
+    public ConnectionCacheConfig() {
+        this(null, null, null);
+    }
+
+    /**
+     * Constructor for ConnectionCacheConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param maximumSize
+     *            maximum number of connections in the cache
+     * @param ttlInSeconds
+     *            a connection is fetched from the node again after this time (or when it is no longer active)
+     * @param prefetchThreads
+     *            number of threads that fetch connections at login
+     */
+    // @formatter:off
+    @JsonCreator
+    public ConnectionCacheConfig(
+            @JsonProperty("maximumSize") Long maximumSize, 
+            @JsonProperty("ttlInSeconds") Integer ttlInSeconds,
+            @JsonProperty("prefetchThreads") Integer prefetchThreads) {// @formatter:on
+        super();
+        this.maximumSize = maximumSize == null ? Long.valueOf(10_000L) : maximumSize;
+        this.ttlInSeconds = ttlInSeconds == null ? Integer.valueOf(3600) : ttlInSeconds;
+        this.prefetchThreads = prefetchThreads == null ? Integer.valueOf(2) : prefetchThreads;
+    }
+}
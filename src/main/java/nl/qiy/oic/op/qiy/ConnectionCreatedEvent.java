@@ -0,0 +1,57 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Simple data class, the data of the event the node sends on its event stream when a user has created a connection
+ * using one of our connect tokens. Holds the same information as the headers of the callback.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+final class ConnectionCreatedEvent {
+    final String pid;
+    final String connection;
+    final ConnectToken connectToken;
+
+    /**
+     * JSON constructor for ConnectionCreatedEvent
+     * 
+     * @param pid
+     *            the persistent identifier (which will become the sub in the idToken)
+     * @param connection
+     *            the URI for the connection that can be used to communicate
+     * @param connectToken
+     *            the connect token that was used to create the connection
+     */
+    @JsonCreator
+    ConnectionCreatedEvent(@JsonProperty("pid") String pid, @JsonProperty("connection") String connection,
+            @JsonProperty("connectToken") ConnectToken connectToken) {
+        super();
+        this.pid = pid;
+        this.connection = connection;
+        this.connectToken = connectToken;
+    }
+}
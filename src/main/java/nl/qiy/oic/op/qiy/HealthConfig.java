@@ -0,0 +1,84 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the health checks that {@link HealthMonitor} runs in the background, will default to:
+ * <dl>
+ * <dt>intervalInSeconds
+ * <dd>10
+ * <dt>maxNodeLatencyInMillis
+ * <dd>2000
+ * <dt>maxSecondsSinceLastEvent
+ * <dd>300
+ * <dt>maxCardDataAgeInSeconds
+ * <dd>90000 (a bit more than two refresh intervals, with the default refresh interval)
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class HealthConfig {
+
+    public final Integer intervalInSeconds;
+    public final Integer maxNodeLatencyInMillis;
+    public final Integer maxSecondsSinceLastEvent;
+    public final Integer maxCardDataAgeInSeconds;
+
+    /**
+     * Default constructor for HealthConfig, using all the defaults
+     */
+    public HealthConfig() {
+        this(null, null, null, null);
+    }
+
+    /**
+     * Constructor for HealthConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param intervalInSeconds
+     *            time between two rounds of checks. When the last round is more than three intervals ago the checks
+     *            are considered stuck, which is unhealthy
+     * @param maxNodeLatencyInMillis
+     *            a call to the node that takes longer than this is unhealthy
+     * @param maxSecondsSinceLastEvent
+     *            when the node's event stream is used, a stream that has been silent (not even a heartbeat) for longer
+     *            than this is unhealthy
+     * @param maxCardDataAgeInSeconds
+     *            card share data that has not been confirmed by the card API for longer than this is unhealthy
+     */
+    // @formatter:off
+    @JsonCreator
+    public HealthConfig(
+            @JsonProperty("intervalInSeconds") Integer intervalInSeconds,
+            @JsonProperty("maxNodeLatencyInMillis") Integer maxNodeLatencyInMillis,
+            @JsonProperty("maxSecondsSinceLastEvent") Integer maxSecondsSinceLastEvent,
+            @JsonProperty("maxCardDataAgeInSeconds") Integer maxCardDataAgeInSeconds) {// @formatter:on
+        super();
+        this.intervalInSeconds = intervalInSeconds == null ? Integer.valueOf(10) : intervalInSeconds;
+        this.maxNodeLatencyInMillis = maxNodeLatencyInMillis == null ? Integer.valueOf(2000) : maxNodeLatencyInMillis;
+        this.maxSecondsSinceLastEvent = maxSecondsSinceLastEvent == null ? Integer.valueOf(300)
+                : maxSecondsSinceLastEvent;
+        this.maxCardDataAgeInSeconds = maxCardDataAgeInSeconds == null ? Integer.valueOf(90_000)
+                : maxCardDataAgeInSeconds;
+    }
+}
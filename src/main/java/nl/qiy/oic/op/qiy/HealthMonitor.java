@@ -0,0 +1,403 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import com.codahale.metrics.health.HealthCheck.Result;
+import com.google.common.collect.ImmutableMap;
+
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.config.ConfigurationImpl;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.keystore.KeyRegistry;
+import nl.qiy.openid.op.spi.impl.keystore.SecretStoreImpl;
+import nl.qiy.openid.op.spi.impl.mem.ClientStoreImpl;
+import nl.qiy.openid.op.spi.impl.mem.UserSessionManagerImpl;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Runs the health checks on a background schedule and keeps the results, so that health probes (a load balancer may
+ * poll aggressively) only read a field. Besides the checks on the configuration, the checks look at what actually
+ * fails: how long a call to the node takes, the state of the circuit breaker, whether the node's event stream is alive
+ * and how old the card share data is. The health of the SPI implementations ({@link ClientStoreImpl},
+ * {@link SecretStoreImpl} and {@link UserSessionManagerImpl}) is checked here as well; their isHealthy only reads the
+ * outcome.
+ * <p>
+ * Until {@link #start()} has been called, the checks are run by the caller of {@link #isHealthy()}, at most once per
+ * interval. The same goes for the first call after start() when the first round hasn't finished yet. The node is never
+ * called on the caller's thread: such a round reports the outcome of the last call to the node, and before start()
+ * it has the node called in the background for the next round.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class HealthMonitor implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HealthMonitor.class);
+    /**
+     * Name of the check behind {@link ClientStoreImpl#isHealthy()}
+     */
+    public static final String CLIENTS = "clients";
+    /**
+     * Name of the check behind {@link SecretStoreImpl#isHealthy()}
+     */
+    public static final String KEYS = "keys";
+    /**
+     * Name of the check behind {@link UserSessionManagerImpl#isHealthy()}
+     */
+    public static final String SESSIONS = "sessions";
+    /**
+     * Name of the check that calls the node
+     */
+    static final String NODE = "node";
+
+    /**
+     * Singleton object
+     */
+    private static final HealthMonitor instance = new HealthMonitor();
+
+    /**
+     * Calls the node for the rounds that are run by callers, created when it is first used
+     */
+    private static final class NodeProbes {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "HealthMonitor-node");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final HealthCheck healthCheck = new HealthCheck() {
+        @Override
+        protected Result check() {
+            Map<String, Result> unhealthy = new LinkedHashMap<>();
+            getResults().forEach((name, result) -> {
+                if (!result.isHealthy()) {
+                    unhealthy.put(name, result);
+                }
+            });
+            if (unhealthy.isEmpty()) {
+                return Result.healthy();
+            }
+            StringBuilder message = new StringBuilder();
+            unhealthy.forEach((name, result) -> message.append(name).append(": ").append(result.getMessage())
+                    .append("; "));
+            return Result.unhealthy(message.toString());
+        }
+    };
+
+    private final Supplier<HealthConfig> configSupplier;
+    private final Supplier<Map<String, Supplier<Result>>> checks;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    private volatile Result nodeResult;
+    private volatile long nodeLatencyInMillis = -1L;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * The results of one round of checks
+     */
+    private static final class Snapshot {
+        private final Map<String, Result> results;
+        private final long checkedAt;
+
+        private Snapshot(Map<String, Result> results, long checkedAt) {
+            this.results = results;
+            this.checkedAt = checkedAt;
+        }
+
+        private long getAgeInSeconds() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - checkedAt);
+        }
+    }
+
+    /**
+     * Default constructor for HealthMonitor
+     */
+    private HealthMonitor() {
+        super();
+        this.configSupplier = () -> OpSdkSpiImplConfiguration.getInstance().healthConfig;
+        this.checks = this::getChecks;
+        Metrics.gauge(MetricRegistry.name(HealthMonitor.class, "nodeLatencyInMillis"), () -> nodeLatencyInMillis);
+    }
+
+    /**
+     * Constructor for HealthMonitor with its own checks, for testing
+     * 
+     * @param configSupplier
+     *            gives the configuration when it is needed
+     * @param checks
+     *            gives the checks for a round, by name; the one named {@link #NODE} is the one that calls the node
+     */
+    HealthMonitor(Supplier<HealthConfig> configSupplier, Supplier<Map<String, Supplier<Result>>> checks) {
+        super();
+        this.configSupplier = configSupplier;
+        this.checks = checks;
+    }
+
+    /**
+     * Returns the singleton object
+     * 
+     * @return see description
+     */
+    public static HealthMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return a health check that may be registered by the application, it reports the checks that failed in the
+     *         last round
+     */
+    public HealthCheck getHealthCheck() {
+        return healthCheck;
+    }
+
+    /**
+     * @return true if all checks passed in the last round, which was not too long ago
+     */
+    public boolean isHealthy() {
+        return getResults().values().stream().allMatch(Result::isHealthy);
+    }
+
+    /**
+     * @param name
+     *            the name of a check, e.g. {@link #CLIENTS}
+     * @return true if that check passed in the last round, which was not too long ago
+     */
+    public boolean isHealthy(String name) {
+        Map<String, Result> results = getResults();
+        Result result = results.get(name);
+        if (result == null) {
+            // not run (or the results are too old), go by the whole
+            return results.values().stream().allMatch(Result::isHealthy);
+        }
+        return result.isHealthy();
+    }
+
+    /**
+     * @return the results of the last round of checks, by name of the check
+     */
+    public Map<String, Result> getResults() {
+        long interval = configSupplier.get().intervalInSeconds.longValue();
+        Snapshot current = snapshot;
+        if (current == null || scheduler == null && current.getAgeInSeconds() >= interval) {
+            // not started, or started but the first round hasn't finished yet
+            current = refresh(current);
+        }
+        if (current.getAgeInSeconds() > 3 * interval) {
+            return ImmutableMap.of("healthMonitor",
+                    Result.unhealthy("the checks last ran " + current.getAgeInSeconds() + " s ago"));
+        }
+        return current.results;
+    }
+
+    /**
+     * Runs the checks for a caller, unless another thread did while this one waited. The node is not called on this
+     * thread, see {@link #callNodeInBackground()}
+     * 
+     * @param seen
+     *            the results the caller found too old (or missing)
+     * @return the new results
+     */
+    private synchronized Snapshot refresh(Snapshot seen) {
+        Snapshot current = snapshot;
+        if (current != seen && current != null) {
+            return current;
+        }
+        if (scheduler == null) {
+            callNodeInBackground();
+        }
+        return runChecks(false);
+    }
+
+    /**
+     * Runs a round of checks in the background, see {@link #start()}. Not synchronized, so that a slow node does not
+     * keep callers waiting
+     * 
+     * @return the new results
+     */
+    Snapshot refresh() {
+        return runChecks(true);
+    }
+
+    /**
+     * Calls the node on another thread for the next round, unless a call is still under way
+     */
+    private void callNodeInBackground() {
+        if (probing.compareAndSet(false, true)) {
+            NodeProbes.EXECUTOR.execute(() -> {
+                try {
+                    nodeResult = runCheck(NODE, checks.get().get(NODE));
+                } finally {
+                    probing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs all checks and publishes the results
+     * 
+     * @param callNode
+     *            if false, the outcome of the last call to the node is reported instead
+     * @return the new results
+     */
+    private Snapshot runChecks(boolean callNode) {
+        ImmutableMap.Builder<String, Result> results = ImmutableMap.builder();
+        checks.get().forEach((name, check) -> {
+            if (!NODE.equals(name)) {
+                results.put(name, runCheck(name, check));
+            } else if (callNode) {
+                Result result = runCheck(name, check);
+                nodeResult = result;
+                results.put(name, result);
+            } else {
+                Result last = nodeResult;
+                results.put(name, last == null ? Result.healthy("not called yet") : last);
+            }
+        });
+        Snapshot result = new Snapshot(results.build(), System.nanoTime());
+        snapshot = result;
+        return result;
+    }
+
+    private static Result runCheck(String name, Supplier<Result> check) {
+        Result result;
+        try {
+            result = check.get();
+        } catch (RuntimeException e) {
+            result = Result.unhealthy(e);
+        }
+        if (!result.isHealthy()) {
+            LOGGER.warn("Health check {} failed: {}", name, result.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * @return the checks of this project, by name
+     */
+    private Map<String, Supplier<Result>> getChecks() {
+        OpSdkSpiImplConfiguration configuration = OpSdkSpiImplConfiguration.getInstance();
+        HealthConfig config = configuration.healthConfig;
+        Map<String, Supplier<Result>> result = new LinkedHashMap<>();
+        result.put("configuration", () -> check(new ConfigurationImpl().isHealthy(), "invalid configuration"));
+        result.put("callbackUris", () -> check(QiyAuthorizationFlow.checkCallbackUris(), "can't build the URIs"));
+        result.put(CLIENTS, () -> check(ClientStoreImpl.hasClients(), "no clients"));
+        result.put(KEYS, () -> check(KeyRegistry.getInstance().hasKeys(), "no keys"));
+        result.put(SESSIONS, () -> check(UserSessionManagerImpl.canStoreSessions(), "can't store sessions"));
+        result.put("circuitBreaker", HealthMonitor::checkCircuitBreaker);
+        result.put(NODE, () -> checkNode(config));
+        if (configuration.nodeEventsConfig.enabled.booleanValue()) {
+            result.put("nodeEvents", () -> checkNodeEvents(config));
+        }
+        result.put("cardData", () -> checkCardData(config));
+        return result;
+    }
+
+    private static Result check(boolean healthy, String message) {
+        return healthy ? Result.healthy() : Result.unhealthy(message);
+    }
+
+    private static Result checkCircuitBreaker() {
+        CircuitBreaker.State state = QiyNodeClient.getCircuitBreakerState();
+        return state == CircuitBreaker.State.OPEN ? Result.unhealthy("open") : Result.healthy(state.name());
+    }
+
+    private Result checkNode(HealthConfig config) {
+        if (!QiyNodeClient.isNodeAvailable()) {
+            // don't add to the load of a node that is known to be in trouble
+            return Result.unhealthy("not called, the circuit breaker is open");
+        }
+        long start = System.nanoTime();
+        int status = QiyNodeClient.probeNode();
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        nodeLatencyInMillis = latency;
+        if (status >= 500) {
+            return Result.unhealthy("status " + status + " after " + latency + " ms");
+        }
+        if (latency > config.maxNodeLatencyInMillis.longValue()) {
+            return Result.unhealthy("answered in " + latency + " ms");
+        }
+        return Result.healthy(latency + " ms");
+    }
+
+    private static Result checkNodeEvents(HealthConfig config) {
+        NodeEventListener listener = NodeEventListener.getInstance();
+        long silent = listener.getSecondsSinceLastEvent();
+        if (!listener.isConnected()) {
+            return Result.unhealthy("not connected, last event " + silent + " s ago");
+        }
+        if (silent > config.maxSecondsSinceLastEvent.longValue()) {
+            return Result.unhealthy("connected, but silent for " + silent + " s");
+        }
+        return Result.healthy("last event " + silent + " s ago");
+    }
+
+    private static Result checkCardData(HealthConfig config) {
+        long age = QiyNodeClient.getCardShareDataAgeInSeconds();
+        if (age < 0) {
+            return Result.unhealthy("not read yet");
+        }
+        if (age > config.maxCardDataAgeInSeconds.longValue()) {
+            return Result.unhealthy("last confirmed " + age + " s ago");
+        }
+        return Result.healthy(age + " s old");
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (scheduler != null) {
+            return;
+        }
+        long interval = configSupplier.get().intervalInSeconds.longValue();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "HealthMonitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0L, interval, TimeUnit.SECONDS);
+        LOGGER.info("Running the health checks every {} s", interval);
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Hedges a call: if the first attempt has not finished within a delay (a percentile of the recent latencies), a second
+ * attempt is started and the first one that succeeds is used. The result of the other attempt is released. A budget
+ * limits the number of hedged calls to a percentage of all calls, so that a slow node does not get twice the load.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+class Hedger {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(Hedger.class);
+    /**
+     * The number of latencies that must have been recorded before the percentile is used
+     */
+    private static final long MIN_SAMPLES = 20L;
+    /**
+     * Maximum number of hedges that can be saved up
+     */
+    private static final double MAX_BUDGET = 10.0;
+    private static final long DELAY_RECALCULATION_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final HedgingConfig config;
+    private final ThreadPoolExecutor executor;
+    private final Timer latency;
+    private final Meter hedged;
+
+    private double budget = 0.0;
+    private volatile long delayNanos;
+    private volatile long delayCalculatedAt;
+
+    /**
+     * Constructor for Hedger
+     * 
+     * @param name
+     *            used for the metrics and thread names
+     * @param config
+     *            the configuration
+     */
+    Hedger(String name, HedgingConfig config) {
+        super();
+        this.config = config;
+        AtomicInteger count = new AtomicInteger();
+        // when all threads are busy the caller makes the attempt itself
+        this.executor = new ThreadPoolExecutor(0, config.threads.intValue(), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> new Thread(r, name + "-hedger-" + count.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        MetricRegistry registry = Metrics.getRegistry();
+        this.latency = registry.timer(MetricRegistry.name(Hedger.class, name, "latency"));
+        this.hedged = registry.meter(MetricRegistry.name(Hedger.class, name, "hedged"));
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(config.initialDelayInMillis.longValue());
+        this.delayCalculatedAt = System.nanoTime();
+    }
+
+    /**
+     * Makes the call, hedging it if it takes too long
+     * 
+     * @param attempt
+     *            makes an attempt, every attempt should be independent of the others
+     * @param release
+     *            called with the result of an attempt that succeeded but was not used
+     * @param <T>
+     *            the result type
+     * @return the result of the first attempt that succeeded
+     * @throws RuntimeException
+     *             whatever the attempt threw, if all attempts failed
+     */
+    <T> T call(Supplier<T> attempt, Consumer<T> release) {
+        if (!config.enabled.booleanValue()) {
+            return attempt.get();
+        }
+        addBudget();
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> timed(attempt), executor);
+        try {
+            return primary.get(getDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) { // NOSONAR, expected: time to hedge
+            LOGGER.trace("No result within the delay", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.thenAccept(release);
+            throw new IllegalStateException(e);
+        }
+
+        if (!spendBudget()) {
+            return join(primary);
+        }
+        hedged.mark();
+        LOGGER.debug("Hedging after {} ms", TimeUnit.NANOSECONDS.toMillis(delayNanos));
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> timed(attempt), executor);
+        T result = join(firstSuccess(primary, hedge));
+        primary.thenAccept(r -> releaseIfNot(result, r, release));
+        hedge.thenAccept(r -> releaseIfNot(result, r, release));
+        return result;
+    }
+
+    private static <T> void releaseIfNot(T used, T result, Consumer<T> release) {
+        if (result != used) {
+            release.accept(result);
+        }
+    }
+
+    private <T> T timed(Supplier<T> attempt) {
+        try (Timer.Context ctx = latency.time()) {
+            return attempt.get();
+        }
+    }
+
+    /**
+     * @return a future that completes with the result of the first of the given futures to succeed, or exceptionally
+     *         if both fail
+     */
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> completion = (r, t) -> {
+            if (t == null) {
+                result.complete(r);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(t);
+            }
+        };
+        first.whenComplete(completion);
+        second.whenComplete(completion);
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable t) {
+        Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Recalculates the delay at most once a second, since taking a snapshot of the latencies is not cheap
+     * 
+     * @return the time to wait for the first attempt before hedging
+     */
+    private long getDelayNanos() {
+        long now = System.nanoTime();
+        if (now - delayCalculatedAt > DELAY_RECALCULATION_NANOS && latency.getCount() >= MIN_SAMPLES) {
+            delayCalculatedAt = now;
+            long percentile = (long) latency.getSnapshot().getValue(config.percentile.doubleValue());
+            delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(config.minDelayInMillis.longValue()), percentile);
+        }
+        return delayNanos;
+    }
+
+    private synchronized void addBudget() {
+        budget = Math.min(MAX_BUDGET, budget + config.budgetPercent.doubleValue() / 100.0);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (budget < 1.0) {
+            return false;
+        }
+        budget -= 1.0;
+        return true;
+    }
+}
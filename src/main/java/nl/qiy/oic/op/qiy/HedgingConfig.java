@@ -0,0 +1,95 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for hedging the connect token registration: if the node has not answered within the delay, a second
+ * registration is sent and the first one to succeed is used. Will default to:
+ * <dl>
+ * <dt>enabled
+ * <dd>false
+ * <dt>percentile
+ * <dd>0.95 (the delay is this percentile of the recent registration latencies)
+ * <dt>minDelayInMillis
+ * <dd>50
+ * <dt>initialDelayInMillis
+ * <dd>1000 (used until enough latencies have been recorded)
+ * <dt>budgetPercent
+ * <dd>5 (at most this percentage of the registrations is hedged)
+ * <dt>threads
+ * <dd>32
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class HedgingConfig {
+
+    public final Boolean enabled;
+    public final Double percentile;
+    public final Integer minDelayInMillis;
+    public final Integer initialDelayInMillis;
+    public final Integer budgetPercent;
+    public final Integer threads;
+
+    /**
+     * Default constructor for HedgingConfig, using all the defaults
+     */
+    public HedgingConfig() {
+        this(null, null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for HedgingConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param enabled
+     *            if false, a single registration is done
+     * @param percentile
+     *            the delay before hedging is this percentile (between 0 and 1) of the recent registration latencies
+     * @param minDelayInMillis
+     *            the delay is never shorter than this
+     * @param initialDelayInMillis
+     *            the delay that is used until enough latencies have been recorded
+     * @param budgetPercent
+     *            at most this percentage of the registrations is hedged
+     * @param threads
+     *            the maximum number of registrations that are running at the same time
+     */
+    // @formatter:off
+    @JsonCreator
+    public HedgingConfig(
+            @JsonProperty("enabled") Boolean enabled, 
+            @JsonProperty("percentile") Double percentile,
+            @JsonProperty("minDelayInMillis") Integer minDelayInMillis,
+            @JsonProperty("initialDelayInMillis") Integer initialDelayInMillis,
+            @JsonProperty("budgetPercent") Integer budgetPercent,
+            @JsonProperty("threads") Integer threads) {// @formatter:on
+        super();
+        this.enabled = enabled == null ? Boolean.FALSE : enabled;
+        this.percentile = percentile == null ? Double.valueOf(0.95) : percentile;
+        this.minDelayInMillis = minDelayInMillis == null ? Integer.valueOf(50) : minDelayInMillis;
+        this.initialDelayInMillis = initialDelayInMillis == null ? Integer.valueOf(1000) : initialDelayInMillis;
+        this.budgetPercent = budgetPercent == null ? Integer.valueOf(5) : budgetPercent;
+        this.threads = threads == null ? Integer.valueOf(32) : threads;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.dropwizard.client.JerseyClientConfiguration;
+import io.dropwizard.util.Duration;
+
+/**
+ * Configuration of the HTTP transport that is used for the calls to the Qiy Node. Next to the settings of
+ * {@link JerseyClientConfiguration} (pool size, per route limit, timeouts, keep alive, TLS) this has:
+ * <dl>
+ * <dt>idleEvictionPeriod
+ * <dd>connections that have been idle for this long are closed, defaults to 30 seconds
+ * <dt>preOpenedConnections
+ * <dd>number of connections to the node that are opened at startup, defaults to 0
+ * </dl>
+ * Unlike the other configuration classes this one is a bean, just like its super class.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class NodeClientConfig extends JerseyClientConfiguration {
+    @NotNull
+    private Duration idleEvictionPeriod = Duration.seconds(30);
+
+    @Min(0)
+    private int preOpenedConnections = 0;
+
+    @JsonProperty
+    public Duration getIdleEvictionPeriod() {
+        return idleEvictionPeriod;
+    }
+
+    @JsonProperty
+    public void setIdleEvictionPeriod(Duration idleEvictionPeriod) {
+        this.idleEvictionPeriod = idleEvictionPeriod;
+    }
+
+    @JsonProperty
+    public int getPreOpenedConnections() {
+        return preOpenedConnections;
+    }
+
+    @JsonProperty
+    public void setPreOpenedConnections(int preOpenedConnections) {
+        this.preOpenedConnections = preOpenedConnections;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import org.glassfish.jersey.media.sse.InboundEvent;
+
+/**
+ * Receives the events from the node's event stream, see {@link NodeEventListener#register(NodeEventHandler)}
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+@FunctionalInterface
+public interface NodeEventHandler {
+    /**
+     * Handles the event. Called on one of the dispatch threads, so it should not block for long.
+     * 
+     * @param event
+     *            the event as read from the node's event stream
+     */
+    void handle(InboundEvent event);
+
+    /**
+     * Events for which this method returns equal keys are handled one after the other, in the order in which they
+     * were received. Events with different keys may be handled in parallel.
+     * 
+     * @param event
+     *            the event that is to be handled
+     * @return the key, typically the connection the event is about. The default (null) means that all events are
+     *         handled in order by this handler
+     */
+    default Object orderingKey(InboundEvent event) {
+        return null;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.glassfish.jersey.media.sse.EventInput;
+import org.glassfish.jersey.media.sse.InboundEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Listens to the node's event stream on a single thread and hands the events to the registered
+ * {@link NodeEventHandler}s. When the stream is closed or fails, it is reopened after a delay that grows exponentially
+ * (with some jitter) and the node is asked to resume after the last event that was received.
+ * <p>
+ * The events are handled on a fixed number of dispatch threads, each with its own bounded queue. Events with the same
+ * {@link NodeEventHandler#orderingKey(InboundEvent) ordering key} always go to the same thread, so they are handled in
+ * order. When a queue is full, reading from the stream waits until there is room again.
+ * <p>
+ * Only active after {@link #start()} has been called and {@link NodeEventsConfig#enabled} is set.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class NodeEventListener implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeEventListener.class);
+
+    /**
+     * Singleton object
+     */
+    private static final NodeEventListener instance = new NodeEventListener(
+            () -> OpSdkSpiImplConfiguration.getInstance().nodeEventsConfig, QiyNodeClient::openEventStream);
+
+    private final List<NodeEventHandler> handlers = new CopyOnWriteArrayList<>();
+    private final Supplier<NodeEventsConfig> configSupplier;
+    private final Function<String, EventInput> streamOpener;
+
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile Thread reader;
+    private volatile EventInput eventInput;
+    private volatile String lastEventId;
+    private volatile long lastEventAt = -1L;
+    private long serverReconnectDelay = -1L;
+    private NodeEventsConfig config;
+    private ThreadPoolExecutor[] lanes;
+    private Meter reconnects;
+    private Meter blocked;
+    private Timer lag;
+
+    /**
+     * Constructor for NodeEventListener, see {@link #getInstance()}
+     * 
+     * @param configSupplier
+     *            gives the configuration when the listener is started
+     * @param streamOpener
+     *            opens the node's event stream, resuming after the given event id (null for none)
+     */
+    NodeEventListener(Supplier<NodeEventsConfig> configSupplier, Function<String, EventInput> streamOpener) {
+        super();
+        this.configSupplier = configSupplier;
+        this.streamOpener = streamOpener;
+    }
+
+    /**
+     * Returns the singleton object
+     * 
+     * @return see description
+     */
+    public static NodeEventListener getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param handler
+     *            will receive all events that are read from now on
+     */
+    public void register(NodeEventHandler handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * @param handler
+     *            will no longer receive events
+     */
+    public void unregister(NodeEventHandler handler) {
+        handlers.remove(handler);
+    }
+
+    /**
+     * @return whether the stream is currently open
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return the number of seconds since the last event (or comment, which the node uses as heartbeat) was read, -1
+     *         if none has been read yet
+     */
+    public long getSecondsSinceLastEvent() {
+        long at = lastEventAt;
+        return at < 0 ? -1L : TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - at);
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        NodeEventsConfig config = configSupplier.get();
+        if (!config.enabled.booleanValue() || running) {
+            LOGGER.info("Not listening to the node's events");
+            return;
+        }
+        this.config = config;
+        int threads = config.dispatchThreads.intValue();
+        lanes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "NodeEventDispatcher-" + i;
+            // when the queue is full the reader waits for room, so no events are lost
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(config.queueCapacity.intValue()), r -> new Thread(r, name),
+                    this::waitForRoom);
+        }
+
+        MetricRegistry registry = Metrics.getRegistry();
+        reconnects = registry.meter(MetricRegistry.name(NodeEventListener.class, "reconnects"));
+        blocked = registry.meter(MetricRegistry.name(NodeEventListener.class, "blocked"));
+        lag = registry.timer(MetricRegistry.name(NodeEventListener.class, "lag"));
+        Metrics.gauge(MetricRegistry.name(NodeEventListener.class, "connected"), () -> connected ? 1 : 0);
+        Metrics.gauge(MetricRegistry.name(NodeEventListener.class, "queued"), this::getQueued);
+        Metrics.gauge(MetricRegistry.name(NodeEventListener.class, "secondsSinceLastEvent"),
+                this::getSecondsSinceLastEvent);
+
+        running = true;
+        Thread thread = new Thread(this::readLoop, "NodeEventListener");
+        thread.setDaemon(true);
+        reader = thread;
+        thread.start();
+        LOGGER.info("Listening to the node's events, dispatching on {} threads", threads);
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (!running) {
+            return;
+        }
+        running = false;
+        EventInput input = eventInput;
+        if (input != null) {
+            input.close();
+        }
+        reader.interrupt();
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} node events were not handled", lane.shutdownNow().size());
+            }
+        }
+        LOGGER.info("Stopped listening to the node's events");
+    }
+
+    private void readLoop() {
+        int failures = 0;
+        while (running) {
+            boolean received = false;
+            try (EventInput input = streamOpener.apply(lastEventId)) {
+                eventInput = input;
+                connected = true;
+                LOGGER.info("Connected to the node's event stream, last event id {}", lastEventId);
+                while (running && !input.isClosed()) {
+                    InboundEvent event = input.read();
+                    if (event == null) {
+                        break;
+                    }
+                    received = true;
+                    onEvent(event);
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    LOGGER.warn("Error while reading the node's event stream", e);
+                }
+            } finally {
+                connected = false;
+                eventInput = null;
+            }
+            failures = received ? 0 : failures + 1;
+            if (running) {
+                reconnects.mark();
+                sleep(nextDelayInMillis(failures));
+            }
+        }
+    }
+
+    private void onEvent(InboundEvent event) {
+        long readAt = System.nanoTime();
+        lastEventAt = readAt;
+        if (event.getId() != null) {
+            lastEventId = event.getId();
+        }
+        if (event.isReconnectDelaySet()) {
+            serverReconnectDelay = event.getReconnectDelay();
+        }
+        if (event.isEmpty()) {
+            // a comment or a retry instruction, nothing to dispatch
+            return;
+        }
+        for (NodeEventHandler handler : handlers) {
+            dispatch(handler, event, readAt);
+        }
+    }
+
+    private void dispatch(NodeEventHandler handler, InboundEvent event, long readAt) {
+        Object key = handler.orderingKey(event);
+        int hash = key == null ? System.identityHashCode(handler) : key.hashCode();
+        ThreadPoolExecutor lane = lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+        try {
+            lane.execute(() -> {
+                lag.update(System.nanoTime() - readAt, TimeUnit.NANOSECONDS);
+                try {
+                    handler.handle(event);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while handling node event {}", event.getId(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Not dispatching event {}, stopping", event.getId(), e);
+        }
+    }
+
+    private void waitForRoom(Runnable job, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) {
+            throw new RejectedExecutionException("Dispatcher has been shut down");
+        }
+        blocked.mark();
+        try {
+            lane.getQueue().put(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
+    /**
+     * @param failures
+     *            the number of times in a row that the stream could not be opened or closed without any events
+     * @return the number of milliseconds to wait before reconnecting
+     */
+    private long nextDelayInMillis(int failures) {
+        long max = config.maxReconnectDelayInMillis.longValue();
+        long min = Math.max(config.minReconnectDelayInMillis.longValue(), serverReconnectDelay);
+        long delay = Math.min(max, min << Math.min(Math.max(failures - 1, 0), 20));
+        // up to 20% jitter, so that not all instances reconnect at the same moment
+        long jitter = ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+        return Math.min(max, delay + jitter);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) { // NOSONAR, the flag is restored
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int getQueued() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the {@link NodeEventListener}. Will default to:
+ * <dl>
+ * <dt>enabled
+ * <dd>false
+ * <dt>minReconnectDelayInMillis
+ * <dd>1000
+ * <dt>maxReconnectDelayInMillis
+ * <dd>60000
+ * <dt>dispatchThreads
+ * <dd>4
+ * <dt>queueCapacity
+ * <dd>1000 (per dispatch thread)
+ * <dt>completeLogins
+ * <dd>false (if true, logins are completed when the node sends a connection created event)
+ * <dt>connectionCreatedEvent
+ * <dd>connectionCreated (the name of that event)
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class NodeEventsConfig {
+
+    public final Boolean enabled;
+    public final Integer minReconnectDelayInMillis;
+    public final Integer maxReconnectDelayInMillis;
+    public final Integer dispatchThreads;
+    public final Integer queueCapacity;
+    public final Boolean completeLogins;
+    public final String connectionCreatedEvent;
+
+    /**
+     * Default constructor for NodeEventsConfig, using all the defaults
+     */
+    public NodeEventsConfig() {
+        this(null, null, null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for NodeEventsConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param enabled
+     *            if false, the node's event stream is not listened to
+     * @param minReconnectDelayInMillis
+     *            the delay before the first reconnect, unless the node asks for a longer one
+     * @param maxReconnectDelayInMillis
+     *            the delay between reconnects never exceeds this
+     * @param dispatchThreads
+     *            number of threads that hand the events to the handlers
+     * @param queueCapacity
+     *            number of events that may wait for each dispatch thread, reading from the stream pauses when full
+     * @param completeLogins
+     *            if true, a login is completed as soon as the node sends the event for the connection that was created
+     *            for it, and no callback is registered with the connect token. Needs enabled to be true
+     * @param connectionCreatedEvent
+     *            the name of the event the node sends when a connection has been created
+     */
+    // @formatter:off
+    @JsonCreator
+    public NodeEventsConfig(
+            @JsonProperty("enabled") Boolean enabled, 
+            @JsonProperty("minReconnectDelayInMillis") Integer minReconnectDelayInMillis,
+            @JsonProperty("maxReconnectDelayInMillis") Integer maxReconnectDelayInMillis,
+            @JsonProperty("dispatchThreads") Integer dispatchThreads,
+            @JsonProperty("queueCapacity") Integer queueCapacity,
+            @JsonProperty("completeLogins") Boolean completeLogins,
+            @JsonProperty("connectionCreatedEvent") String connectionCreatedEvent) {// @formatter:on
+        super();
+        this.enabled = enabled == null ? Boolean.FALSE : enabled;
+        this.minReconnectDelayInMillis = minReconnectDelayInMillis == null ? Integer.valueOf(1000)
+                : minReconnectDelayInMillis;
+        this.maxReconnectDelayInMillis = maxReconnectDelayInMillis == null ? Integer.valueOf(60_000)
+                : maxReconnectDelayInMillis;
+        this.dispatchThreads = dispatchThreads == null ? Integer.valueOf(4) : dispatchThreads;
+        this.queueCapacity = queueCapacity == null ? Integer.valueOf(1000) : queueCapacity;
+        this.completeLogins = completeLogins == null ? Boolean.FALSE : completeLogins;
+        this.connectionCreatedEvent = connectionCreatedEvent == null ? "connectionCreated" : connectionCreatedEvent;
+        if (this.completeLogins.booleanValue() && !this.enabled.booleanValue()) {
+            throw new IllegalArgumentException("completeLogins needs the node's events, set enabled to true as well");
+        }
+    }
+}
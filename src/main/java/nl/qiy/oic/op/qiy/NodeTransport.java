@@ -0,0 +1,158 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import java.net.URI;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import javax.ws.rs.client.Client;
+
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+
+import io.dropwizard.client.HttpClientBuilder;
+import io.dropwizard.client.JerseyClientBuilder;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Builds the JAX-RS client for the calls to the Qiy Node from the {@link NodeClientConfig}: a pool of persistent
+ * connections that is instrumented (the pool's available, leased, max and pending connections are published under
+ * {@code org.apache.http.conn.HttpClientConnectionManager.qiy-node}), with idle connections evicted and, optionally,
+ * some connections opened at startup. If no {@link NodeClientConfig} has been given, the client that the application
+ * sets through {@link QiyNodeClient#setJaxRsClient(Client)} is used.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class NodeTransport implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NodeTransport.class);
+    private static final String NAME = "qiy-node";
+
+    private ExecutorService executor;
+    private Client client;
+
+    /**
+     * Dropwizard's builder, with eviction of idle connections added
+     */
+    private static class EvictingHttpClientBuilder extends HttpClientBuilder {
+        private final Duration idleEvictionPeriod;
+
+        /**
+         * Constructor for EvictingHttpClientBuilder
+         */
+        EvictingHttpClientBuilder(MetricRegistry registry, Duration idleEvictionPeriod) {
+            super(registry);
+            this.idleEvictionPeriod = idleEvictionPeriod;
+        }
+
+        @Override
+        protected org.apache.http.impl.client.HttpClientBuilder customizeBuilder(
+                org.apache.http.impl.client.HttpClientBuilder builder) {
+            return builder.evictExpiredConnections().evictIdleConnections(idleEvictionPeriod.getQuantity(),
+                    idleEvictionPeriod.getUnit());
+        }
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        OpSdkSpiImplConfiguration config = OpSdkSpiImplConfiguration.getInstance();
+        NodeClientConfig clientConfig = config.nodeClientConfig;
+        if (clientConfig == null) {
+            LOGGER.info("No nodeClientConfig, using the JAX-RS client set by the application");
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(clientConfig.getMinThreads(), clientConfig.getMaxThreads(), 60L,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(clientConfig.getWorkQueueSize()),
+                r -> new Thread(r, NAME + "-" + count.incrementAndGet()));
+
+        MetricRegistry registry = Metrics.getRegistry();
+        JerseyClientBuilder builder = new JerseyClientBuilder(registry);
+        // must be set before the configuration is, since that is handed to the HttpClientBuilder right away
+        builder.setApacheHttpClientBuilder(
+                new EvictingHttpClientBuilder(registry, clientConfig.getIdleEvictionPeriod()));
+        // @formatter:off
+        client = builder
+                .using(clientConfig)
+                .using(executor, Jackson.newObjectMapper())
+                .withProvider(SseFeature.class)
+                .build(NAME); // @formatter:on
+        QiyNodeClient.setJaxRsClient(client);
+        LOGGER.info("Using a pool of at most {} connections ({} per route) to the node",
+                clientConfig.getMaxConnections(), clientConfig.getMaxConnectionsPerRoute());
+
+        preOpen(URI.create(config.nodeConfig.endpoint), clientConfig.getPreOpenedConnections());
+    }
+
+    /**
+     * Opens connections to the node in parallel, so that they are in the pool (TCP and TLS set up) when the first users
+     * arrive. Does not wait for the result.
+     * 
+     * @param endpoint
+     *            the node's API endpoint
+     * @param connections
+     *            number of connections to open
+     */
+    private static void preOpen(URI endpoint, int connections) {
+        if (connections <= 0) {
+            return;
+        }
+        ExecutorService openers = Executors.newFixedThreadPool(connections);
+        // @formatter:off
+        CompletableFuture<?>[] futures = IntStream
+                .range(0, connections)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> QiyNodeClient.doGet(endpoint).close(), openers))
+                .toArray(CompletableFuture[]::new); // @formatter:on
+        CompletableFuture.allOf(futures).whenComplete((v, t) -> {
+            openers.shutdown();
+            if (t == null) {
+                LOGGER.info("Opened {} connections to {}", connections, endpoint);
+            } else {
+                LOGGER.warn("Could not open all {} connections to {}: {}", connections, endpoint, t.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (client != null) {
+            client.close();
+            executor.shutdown();
+            LOGGER.info("Closed the node client");
+        }
+    }
+}
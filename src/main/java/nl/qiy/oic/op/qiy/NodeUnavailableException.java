@@ -0,0 +1,45 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Thrown instead of calling the Qiy Node when the circuit breaker around the node calls is open
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class NodeUnavailableException extends ProcessingException {
+    /**
+     * Generated
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for NodeUnavailableException
+     * 
+     * @param message
+     *            the detail message
+     */
+    public NodeUnavailableException(String message) {
+        super(message);
+    }
+}
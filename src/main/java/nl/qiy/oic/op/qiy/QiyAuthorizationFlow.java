@@ -19,15 +19,13 @@
 
 package nl.qiy.oic.op.qiy;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URL;
 import java.security.SecureRandom;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
@@ -55,11 +53,14 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriBuilder;
 
 import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.InboundEvent;
 import org.glassfish.jersey.media.sse.SseFeature;
 import org.glassfish.jersey.server.ChunkedOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.io.BaseEncoding;
@@ -71,6 +72,8 @@ import nl.qiy.oic.op.service.ConfigurationService;
 import nl.qiy.oic.op.service.OAuthUserService;
 import nl.qiy.oic.op.service.spi.AuthorizationFlow;
 import nl.qiy.oic.op.service.spi.Configuration;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
 
 /**
  * The authorization flow that will allow the user to log in using her Qiy Node. It starts the flow by displaying a QR
@@ -87,18 +90,128 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
     private static final Logger LOGGER = LoggerFactory.getLogger(QiyAuthorizationFlow.class);
     private static final Random RANDOM = new SecureRandom();
     private static final BaseEncoding B_32 = BaseEncoding.base32().omitPadding();
+    private static final String NODE_UNAVAILABLE = "Logging in with Qiy is temporarily unavailable, please try again "
+            + "later";
     private static QiyAuthorizationFlow instance;
     private static ServerSentEventStreams eventStreams;
 
     // I suppose we should want to migrate this to Redis or something
-    private static final Cache<String, HttpSession> TO_BE_LOGGED_IN = CacheBuilder.newBuilder()
+    private static final Cache<String, WaitingLogin> TO_BE_LOGGED_IN = CacheBuilder.newBuilder()
             .expireAfterWrite(45, TimeUnit.MINUTES)
+            .recordStats()
+            .removalListener(CacheMetrics.countingRemovals("toBeLoggedIn"))
+            .build();
+
+    /**
+     * The randoms for which the node has invoked the callback, mapped to the status that was (or is being) returned.
+     * The node may retry a callback (timeouts, at-least-once delivery), a retry gets the recorded status without the
+     * login being done again. {@link Status#ACCEPTED} marks a callback that is still being handled.
+     */
+    private static final Cache<String, Status> COMPLETED_CALLBACKS = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .recordStats()
+            .removalListener(CacheMetrics.countingRemovals("completedCallbacks"))
+            .build();
+
+    /**
+     * The targets of the connect tokens that are waiting for a connection, used when logins are completed from the
+     * node's event stream
+     */
+    private static final Cache<URI, PendingLogin> PENDING_BY_TARGET = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(45, TimeUnit.MINUTES)
+            .recordStats()
+            .removalListener(CacheMetrics.countingRemovals("pendingByTarget"))
             .build();
 
     private static UriBuilder notificationUriBuilder;
     private static UriBuilder callbackUriBuilder;
     private static ScheduledExecutorService scheduledThreadPool;
 
+    private static Hedger registrationHedger;
+
+    /**
+     * The result of registering a callback with the node
+     */
+    private static final class Registration {
+        private final String random;
+        private final QiyNodeClient client;
+
+        private Registration(String random, QiyNodeClient client) {
+            this.random = random;
+            this.client = client;
+        }
+    }
+
+    /**
+     * The session that waits for a login, and the target of its connect token if the login is pending in
+     * {@link QiyAuthorizationFlow#PENDING_BY_TARGET}
+     */
+    private static final class WaitingLogin {
+        private final HttpSession session;
+        private final URI target;
+
+        private WaitingLogin(HttpSession session, URI target) {
+            this.session = session;
+            this.target = target;
+        }
+    }
+
+    /**
+     * What is needed to complete a login when the connection created event arrives
+     */
+    private static final class PendingLogin {
+        private final String random;
+        private final byte[] body;
+
+        private PendingLogin(String random, byte[] body) {
+            this.random = random;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Completes logins from the node's event stream, see {@link NodeEventsConfig#completeLogins}
+     */
+    private static final class ConnectionCreatedHandler implements NodeEventHandler {
+        private static final ObjectReader READER = new ObjectMapper().readerFor(ConnectionCreatedEvent.class);
+        private final String eventName;
+
+        private ConnectionCreatedHandler(String eventName) {
+            this.eventName = eventName;
+        }
+
+        @Override
+        public void handle(InboundEvent event) {
+            if (!eventName.equals(event.getName())) {
+                return;
+            }
+            ConnectionCreatedEvent created;
+            try {
+                created = READER.readValue(event.getRawData());
+            } catch (IOException e) {
+                LOGGER.warn("Could not read event {}", event.getId(), e);
+                return;
+            }
+            PendingLogin pending = created.connectToken == null ? null
+                    : PENDING_BY_TARGET.getIfPresent(created.connectToken.target);
+            if (pending == null) {
+                // not ours, might have been handled by another instance
+                LOGGER.debug("No login waits for the connection of event {}", event.getId());
+                return;
+            }
+            PENDING_BY_TARGET.invalidate(created.connectToken.target);
+            completeLoginFromEvent(pending, new CallbackInput(created.pid, created.connection, pending.body));
+        }
+
+        @Override
+        public Object orderingKey(InboundEvent event) {
+            // every event is about another login, so they can be handled in parallel
+            return event.getId();
+        }
+    }
+
     private static class StartFlowCombiner implements BinaryOperator<Response> {
         /**
          * Default constructor for StartFlowCombiner
@@ -132,39 +245,80 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
      */
     @Override
     public Response startFlow(AuthenticationRequest inputs, HttpSession session) {
+        if (!QiyNodeClient.isNodeAvailable()) {
+            return nodeUnavailable();
+        }
         LOGGER.debug("registering callback through Qiy node client");
-        String random = getTBLIRandom();
-        TO_BE_LOGGED_IN.put(random, session);
+        Registration registration;
+        try {
+            // a slow registration is hedged with a second one, the one that was not used is released
+            registration = registrationHedger.call(() -> register(inputs, session), QiyAuthorizationFlow::release);
+        } catch (NodeUnavailableException e) {
+            return nodeUnavailable();
+        }
+        URI notificationUri = getNotificationUrl(registration.random);
+        return Response.ok(new QiyConnectTokenRepresentation(registration.client, notificationUri)).build();
+    }
 
-        Map<String, Object> connectToken = createConnectToken(inputs, random);
-        QiyNodeClient client = QiyNodeClient.createConnectToken(connectToken);
-        URI notificationUri = getNotificationUrl(random);
-        return Response.ok(new QiyConnectTokenRepresentation(client, notificationUri)).build();
+    /**
+     * Forgets a registration that will not be used, e.g. the one that lost a hedged registration
+     * 
+     * @param registration
+     *            the registration
+     */
+    private static void release(Registration registration) {
+        TO_BE_LOGGED_IN.invalidate(registration.random);
+        if (OpSdkSpiImplConfiguration.getInstance().nodeEventsConfig.completeLogins.booleanValue()) {
+            PENDING_BY_TARGET.invalidate(registration.client.getConnectTokenTarget());
+        }
     }
 
     /**
-     * Defines what the callback should look like. We're expecting a POST with media type "application/json" and the
-     * body should be the original input. That way we don't have to keep the state here
+     * Registers a callback URI with a new random with the node. When logins are completed from the node's event stream
+     * (see {@link NodeEventsConfig#completeLogins}) the connect token is requested without a callback, so that a login
+     * costs the node a single event instead of an event and a request; the login then waits in
+     * {@link #PENDING_BY_TARGET} for the connection created event.
      * 
      * @param inputs
-     * @param random
-     * @return see description
+     *            the original request, will be the body of the callback (or is kept until the event arrives)
+     * @param session
+     *            the session of the user that is to be logged in
+     * @return the random and the client holding the connect token
      */
-    private static Map<String, Object> createConnectToken(AuthenticationRequest inputs, String random) {
-        Map<String, Object> connectToken = new HashMap<>();
-        List<Map<String, Object>> actionsActions = new ArrayList<>();
-        connectToken.put("actions", actionsActions);
-
-        HashMap<String, Object> callBackAction = new HashMap<>();
-        callBackAction.put("key", "callback");
-        callBackAction.put("uri", getCallbackUri(random));
-        callBackAction.put("method", "POST");
-        callBackAction.put("type", MediaType.APPLICATION_OCTET_STREAM);
-        callBackAction.put("body", Base64.getEncoder().encodeToString(inputs.toBytes()));
-
-        actionsActions.add(callBackAction);
+    private static Registration register(AuthenticationRequest inputs, HttpSession session) {
+        String random = getTBLIRandom();
+        TO_BE_LOGGED_IN.put(random, new WaitingLogin(session, null));
+        try {
+            // the callback should be a POST with the original input as body. That way we don't have to keep the state
+            // here
+            byte[] body = inputs.toBytes();
+            if (!OpSdkSpiImplConfiguration.getInstance().nodeEventsConfig.completeLogins.booleanValue()) {
+                return new Registration(random, QiyNodeClient.createConnectToken(getCallbackUri(random), body));
+            }
+            // else the event completes the login
+            QiyNodeClient client = QiyNodeClient.createConnectToken();
+            URI target = client.getConnectTokenTarget();
+            TO_BE_LOGGED_IN.put(random, new WaitingLogin(session, target));
+            PENDING_BY_TARGET.put(target, new PendingLogin(random, body));
+            return new Registration(random, client);
+        } catch (RuntimeException e) {
+            TO_BE_LOGGED_IN.invalidate(random);
+            throw e;
+        }
+    }
 
-        return connectToken;
+    /**
+     * @return the response for when the node cannot be reached, tells the browser to try again later
+     */
+    private static Response nodeUnavailable() {
+        LOGGER.debug("Qiy node is unavailable, not starting the flow");
+        Integer retryAfter = OpSdkSpiImplConfiguration.getInstance().circuitBreakerConfig.openDurationInSeconds;
+        // @formatter:off
+        return Response.status(Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .type(MediaType.TEXT_PLAIN_TYPE)
+                .entity(NODE_UNAVAILABLE)
+                .build(); // @formatter:on
     }
 
     /**
@@ -198,24 +352,40 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
         return notificationUriBuilder.build(sRandom);
     }
 
+    /**
+     * Creates the URI builders for the callback and notification URIs, used by {@link WarmUp}
+     */
+    static void warmUpUriBuilders() {
+        getCallbackUri("warmup");
+        getNotificationUrl("warmup");
+    }
+
     @Override
     public BinaryOperator<Response> startFlowCombiner() {
         return new StartFlowCombiner();
     }
 
 
+    /**
+     * Reports the results of the checks that {@link HealthMonitor} runs in the background
+     */
     @Override
     public boolean isHealthy() {
+        return HealthMonitor.getInstance().isHealthy();
+    }
+
+    /**
+     * @return true if the callback and notification URIs can be built, used by {@link HealthMonitor}
+     */
+    static boolean checkCallbackUris() {
         String callbackUri = getCallbackUri("testmijnu");
         String notifictionUri = getNotificationUrl("testmijook").toString();
         // @formatter:off
-        boolean result = callbackUri != null && 
+        return callbackUri != null && 
                 callbackUri.contains("testmijnu") && 
                 notifictionUri != null && 
                 notifictionUri.contains("testmijook");
         // @formatter:on
-        LOGGER.debug("{} isHealthy called: {}", this.getClass(), result);
-        return result;
     }
 
     @Path("watch/{random}")
@@ -285,7 +455,8 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
      * @param cbi
      *            the input we said we'd like to receive
      * @return Normally a 200 (OK) response to signal to the router (who made this request) that the content was
-     *         received in working order
+     *         received in working order. When callbacks are handled asynchronously the 200 is returned as soon as the
+     *         login has been queued
      */
     @Path("callback/{random}")
     @POST
@@ -293,36 +464,136 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
     @SuppressWarnings("ucd")
     public static Response callbackFromQiyNode(@PathParam("random") String random, @HeaderParam("qiy-pid") String pid,
             @HeaderParam("qiy-connection") String connectionUri, byte[] cbi) {
+        Status previous = COMPLETED_CALLBACKS.asMap().putIfAbsent(random, Status.ACCEPTED);
+        if (previous != null) {
+            LOGGER.info("Duplicate callback for random {}, answering {}", random, previous);
+            return Response.status(previous).build();
+        }
 
         CallbackInput cbInput = new CallbackInput(pid, connectionUri, cbi);
         try {
             LOGGER.debug("Callback from Qiy node invoked for random {}", random);
-            HttpSession session = TO_BE_LOGGED_IN.getIfPresent(random);
-            if (session == null) {
-                String msg = "No session waits for login with id " + random;
-                LOGGER.warn(msg);
-                throw new IllegalArgumentException(msg);
-            }
-
-            LOGGER.info("Calling login for {}", cbInput.pid);
-            QiyOAuthUser template = new QiyOAuthUser(cbInput);
-            OAuthUser oAuthUser = OAuthUserService.login(template, session);
-            if (oAuthUser == null) {
-                LOGGER.warn("No user after callback, something must be wrong");
-                return Response.status(Status.NOT_FOUND).build();
+            HttpSession session = getWaitingSession(random);
+            if (CallbackProcessor.getInstance().isActive()) {
+                return acceptCallback(random, cbInput, session);
             }
-
-            notifyUserLoggedIn(random, oAuthUser, cbInput);
-            return Response.ok().build();
+            Status status = completeLogin(random, cbInput, session);
+            COMPLETED_CALLBACKS.put(random, status);
+            return Response.status(status).build();
         } catch (RuntimeException t) {
+            // not completed, so a retry should do the work again
+            COMPLETED_CALLBACKS.invalidate(random);
             LOGGER.warn("Error while doing callbackFromQiyNode", t);
             throw t;
         } catch (Throwable t) {
+            COMPLETED_CALLBACKS.invalidate(random);
             LOGGER.warn("Error while doing callbackFromQiyNode", t);
             throw new RuntimeException(t);
         }
     }
 
+    /**
+     * Queues the login for the {@link CallbackProcessor} so that the node can be answered right away
+     * 
+     * @param random
+     *            the random value that was used in {@link #startFlow(AuthenticationRequest, HttpSession)}
+     * @param cbInput
+     *            what the node sent us
+     * @param session
+     *            the session that waits for the login
+     * @return 200 if the login was queued, 503 (so the node will retry) if it was not
+     */
+    private static Response acceptCallback(String random, CallbackInput cbInput, HttpSession session) {
+        boolean queued = CallbackProcessor.getInstance().submit(() -> {
+            try {
+                COMPLETED_CALLBACKS.put(random, completeLogin(random, cbInput, session));
+            } catch (RuntimeException e) {
+                COMPLETED_CALLBACKS.invalidate(random);
+                LOGGER.warn("Error while completing login for random {}", random, e);
+            }
+        });
+        if (queued) {
+            return Response.ok().build();
+        }
+        COMPLETED_CALLBACKS.invalidate(random);
+        return Response.status(Status.SERVICE_UNAVAILABLE).build();
+    }
+
+    /**
+     * Completes the login for a connection created event from the node. An event that is delivered again is answered
+     * from {@link #COMPLETED_CALLBACKS} without doing the login again.
+     * 
+     * @param pending
+     *            the login that was waiting for the connection
+     * @param cbInput
+     *            what the node sent us
+     */
+    private static void completeLoginFromEvent(PendingLogin pending, CallbackInput cbInput) {
+        String random = pending.random;
+        if (COMPLETED_CALLBACKS.asMap().putIfAbsent(random, Status.ACCEPTED) != null) {
+            LOGGER.debug("Login for random {} was already completed by the callback", random);
+            return;
+        }
+        try {
+            LOGGER.debug("Connection created event for random {}", random);
+            HttpSession session = getWaitingSession(random);
+            COMPLETED_CALLBACKS.put(random, completeLogin(random, cbInput, session));
+        } catch (RuntimeException e) {
+            COMPLETED_CALLBACKS.invalidate(random);
+            LOGGER.warn("Error while completing login for random {}", random, e);
+        }
+    }
+
+    /**
+     * @param random
+     *            the random value that was used in {@link #startFlow(AuthenticationRequest, HttpSession)}
+     * @return the session that waits for a login with the given random
+     * @throws IllegalArgumentException
+     *             if no session is waiting for the random
+     */
+    private static HttpSession getWaitingSession(String random) {
+        WaitingLogin waiting = TO_BE_LOGGED_IN.getIfPresent(random);
+        if (waiting == null) {
+            String msg = "No session waits for login with id " + random;
+            LOGGER.warn(msg);
+            throw new IllegalArgumentException(msg);
+        }
+        return waiting.session;
+    }
+
+    /**
+     * Logs in the user that is waiting for the given random and notifies the browser
+     * 
+     * @param random
+     *            the random value that was used in {@link #startFlow(AuthenticationRequest, HttpSession)}
+     * @param cbInput
+     *            what the node sent us
+     * @param session
+     *            the session that waits for the login
+     * @return the status that should be returned to the node
+     */
+    private static Status completeLogin(String random, CallbackInput cbInput, HttpSession session) {
+        LOGGER.info("Calling login for {}", cbInput.pid);
+        // the connection is needed later on, fetch it while the login is being done
+        ConnectionCache.prefetch(cbInput.connection);
+        ClaimsCache.prefetch(cbInput.pid, cbInput.connection);
+        QiyOAuthUser template = new QiyOAuthUser(cbInput);
+        OAuthUser oAuthUser = OAuthUserService.login(template, session);
+        if (oAuthUser == null) {
+            LOGGER.warn("No user after callback, something must be wrong");
+            return Status.NOT_FOUND;
+        }
+
+        notifyUserLoggedIn(random, oAuthUser, cbInput);
+        // retries are answered from COMPLETED_CALLBACKS, the session and the pending login are no longer needed
+        WaitingLogin waiting = TO_BE_LOGGED_IN.getIfPresent(random);
+        if (waiting != null && waiting.target != null) {
+            PENDING_BY_TARGET.invalidate(waiting.target);
+        }
+        TO_BE_LOGGED_IN.invalidate(random);
+        return Status.OK;
+    }
+
     private static void notifyUserLoggedIn(String random, OAuthUser oAuthUser, CallbackInput cbInput) {
         LOGGER.info("Notifying {} of login with random {}", oAuthUser.getSubject(), random);
         AuthenticationRequest request = AuthenticationRequest.fromBytes(cbInput.body);
@@ -367,15 +638,26 @@ public class QiyAuthorizationFlow implements AuthorizationFlow {
     public static QiyAuthorizationFlow getInstance(URL baseDappreURL) {
         if (instance == null) {
             scheduledThreadPool = Executors.newScheduledThreadPool(1);
-            // might take too long for the deployment script, so don't wait for it
-            scheduledThreadPool.schedule(() -> QiyNodeClient.readCardMessage(baseDappreURL), 1, TimeUnit.MILLISECONDS);
+            // might take too long for the deployment script, so don't wait for it. The refresher schedules its own
+            // next run
+            scheduledThreadPool.schedule(new CardShareDataRefresher(baseDappreURL, scheduledThreadPool), 1,
+                    TimeUnit.MILLISECONDS);
+            registrationHedger = new Hedger("registration", OpSdkSpiImplConfiguration.getInstance().hedgingConfig);
+            NodeEventsConfig nodeEventsConfig = OpSdkSpiImplConfiguration.getInstance().nodeEventsConfig;
+            if (nodeEventsConfig.completeLogins.booleanValue()) {
+                NodeEventListener.getInstance()
+                        .register(new ConnectionCreatedHandler(nodeEventsConfig.connectionCreatedEvent));
+            }
             instance = new QiyAuthorizationFlow();
             eventStreams = ServerSentEventStreams.getInstance();
 
-            // refresh every 12 hours
-            scheduledThreadPool.scheduleAtFixedRate(() -> QiyNodeClient.readCardMessage(baseDappreURL), 12, 12,
-                    TimeUnit.HOURS);
+            // rough estimates: random and entry, a status, the connect token's URI and the original request
+            CacheMetrics.register("toBeLoggedIn", TO_BE_LOGGED_IN, 200L);
+            CacheMetrics.register("completedCallbacks", COMPLETED_CALLBACKS, 150L);
+            CacheMetrics.register("pendingByTarget", PENDING_BY_TARGET, 2000L);
             scheduledThreadPool.scheduleAtFixedRate(TO_BE_LOGGED_IN::cleanUp, 1, 1, TimeUnit.HOURS);
+            scheduledThreadPool.scheduleAtFixedRate(PENDING_BY_TARGET::cleanUp, 1, 1, TimeUnit.HOURS);
+            scheduledThreadPool.scheduleAtFixedRate(COMPLETED_CALLBACKS::cleanUp, 1, 1, TimeUnit.MINUTES);
         }
         return instance;
     }
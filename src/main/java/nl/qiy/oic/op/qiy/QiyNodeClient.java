@@ -36,14 +36,17 @@ import java.security.NoSuchProviderException;
 import java.security.ProviderException;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 import javax.ws.rs.ProcessingException;
@@ -63,12 +66,10 @@ import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.transcoder.image.PNGTranscoder;
 import org.glassfish.jersey.media.sse.EventInput;
 import org.glassfish.jersey.media.sse.InboundEvent;
+import org.glassfish.jersey.media.sse.SseFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Preconditions;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
@@ -97,8 +98,11 @@ public class QiyNodeClient {
      * Standard SLF4J Logger
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(QiyNodeClient.class);
-    private static final ObjectWriter MAP_WRITER = new ObjectMapper().writerFor(HashMap.class);
-    private static List<Map<String, Object>> cardShareData = null;
+    /**
+     * ETag, Last-Modified and body of the responses of the card API, so that refreshes can use conditional requests
+     */
+    private static final Map<URI, CachedResponse> CARD_API_RESPONSES = new ConcurrentHashMap<>();
+    private static volatile CardShareData cardShareData = null;
 
     private static OpSdkSpiImplConfiguration config = null;
     private static Client jaxrsClient = null;
@@ -110,6 +114,25 @@ public class QiyNodeClient {
 
     private final ConnectToken connectToken;
 
+    /**
+     * A successful response from the card API, with the validators that the API gave for it (if any)
+     */
+    private static class CachedResponse {
+        final String eTag;
+        final String lastModified;
+        final Map<String, Object> body;
+
+        /**
+         * Constructor for CachedResponse
+         */
+        CachedResponse(String eTag, String lastModified, Map<String, Object> body) {
+            super();
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+
     /**
      * Private constructor for QiyNodeClient
      * 
@@ -132,42 +155,88 @@ public class QiyNodeClient {
         return config;
     }
 
+    /**
+     * Holds the circuit breaker for the calls to the node, created from the configuration when it is first used. It
+     * guards every call, so getting it should not take a lock
+     */
+    private static final class NodeBreaker {
+        private static final CircuitBreaker INSTANCE = new CircuitBreaker("qiy-node",
+                OpSdkSpiImplConfiguration.getInstance().circuitBreakerConfig);
+    }
+
+    private static CircuitBreaker getCircuitBreaker() {
+        return NodeBreaker.INSTANCE;
+    }
+
+    /**
+     * @return false if the node is known to be unavailable, in which case calls to it will fail fast with a
+     *         {@link NodeUnavailableException}
+     */
+    public static boolean isNodeAvailable() {
+        return getCircuitBreaker().isAvailable();
+    }
+
+    /**
+     * @return the state of the circuit breaker for calls to the node, used by {@link HealthMonitor}
+     */
+    static CircuitBreaker.State getCircuitBreakerState() {
+        return getCircuitBreaker().getState();
+    }
+
+    /**
+     * Calls the node through the circuit breaker, a response with a 5xx status counts as a failure
+     * 
+     * @param call
+     *            the call to the node
+     * @return the response
+     * @throws NodeUnavailableException
+     *             if the circuit breaker is open
+     */
+    private static Response callNode(Supplier<Response> call) {
+        return getCircuitBreaker().call(call,
+                response -> response.getStatusInfo().getFamily() == Family.SERVER_ERROR);
+    }
+
     /**
      * Factory method to make sure no client can exists that is in an invalid state. Registering a callback will always
      * be the first thing to do with the client
      * 
-     * @param inputConnectToken
-     *            all the information needed to let the Node know how to call this OP once the Node has established a
-     *            persistent id for the user
+     * @param callbackUri
+     *            the URI the Node should call once it has established a persistent id for the user
+     * @param callbackBody
+     *            what the Node should send to the callbackUri
      * @return an initialised QiyNodeClient
      */
-    @SuppressWarnings("unchecked")
-    static QiyNodeClient createConnectToken(Map<String, Object> inputConnectToken) {
-        inputConnectToken.merge("actions", cardShareData, (l1, l2) -> {
-            List<Map<String, Object>> result = new ArrayList<>();
-            if (l1 != null)
-                result.addAll((List<Map<String, Object>>) l1);
-            if (l2 != null)
-                result.addAll((List<Map<String, Object>>) l2);
-            return result;
-        });
-        byte[] databytes;
-        try {
-            databytes = MAP_WRITER.writeValueAsBytes(inputConnectToken);
-        } catch (JsonProcessingException e) {
-            LOGGER.error("Error while doing registerCallback", e);
-            throw new IllegalArgumentException(e);
-        }
+    static QiyNodeClient createConnectToken(String callbackUri, byte[] callbackBody) {
+        return requestConnectToken(getBodyTemplate().render(callbackUri, callbackBody));
+    }
+
+    /**
+     * Factory method for a client whose connect token has no callback, for when logins are completed from the node's
+     * event stream (see {@link NodeEventsConfig#completeLogins})
+     * 
+     * @return an initialised QiyNodeClient
+     */
+    static QiyNodeClient createConnectToken() {
+        return requestConnectToken(getBodyTemplate().render());
+    }
+
+    private static ConnectTokenBodyTemplate getBodyTemplate() {
+        CardShareData snapshot = cardShareData;
+        return snapshot == null ? ConnectTokenBodyTemplate.EMPTY : snapshot.bodyTemplate;
+    }
+
+    private static QiyNodeClient requestConnectToken(byte[] databytes) {
         String target = OpSdkSpiImplConfiguration.getInstance().registerCallbackUri;
         Response response;
         try {
             // @formatter:off
-            response = jaxrsClient
+            response = callNode(() -> jaxrsClient
                 .target(target)
                 .request(MediaType.APPLICATION_JSON)
                 .header("password", getConfig().nodeConfig.password)
                 .header(HttpHeaders.AUTHORIZATION, getAuthHeader(databytes))
-                .post(Entity.json(inputConnectToken));
+                .post(Entity.entity(databytes, MediaType.APPLICATION_JSON_TYPE)));
             // @formatter:on
         } catch (ProcessingException e) {
             LOGGER.error("Connection failed {}", target);
@@ -463,11 +532,11 @@ public class QiyNodeClient {
      */
     public static Response doGet(URI uri) {
         // @formatter:off
-        return jaxrsClient
+        return callNode(() -> jaxrsClient
             .target(uri)
             .request(MediaType.APPLICATION_JSON)
             .header(HttpHeaders.AUTHORIZATION, getAuthHeader(null))
-            .get(); // @formatter:on
+            .get()); // @formatter:on
     }
 
     /**
@@ -478,14 +547,7 @@ public class QiyNodeClient {
      *            events will appear)
      */
     public static void listen(Function<InboundEvent, Boolean> evtConsumer) {
-        URI target = getNodeEventUri();
-        // @formatter:off
-        Builder builder = jaxrsClient
-                .target(target)
-                .request()
-                .header(HttpHeaders.AUTHORIZATION, getAuthHeader(null)); // @formatter:on
-
-        try (EventInput eventInput = builder.get(EventInput.class)) {
+        try (EventInput eventInput = openEventStream(null)) {
             while (!eventInput.isClosed()) {
                 InboundEvent inboundEvent = eventInput.read();
                 if (inboundEvent == null || Boolean.FALSE.equals(evtConsumer.apply(inboundEvent))) {
@@ -496,6 +558,81 @@ public class QiyNodeClient {
         }
     }
 
+    /**
+     * Opens the node's event stream, used by {@link NodeEventListener}
+     * 
+     * @param lastEventId
+     *            if not null, the node is asked to resume the stream after the event with this id
+     * @return the stream, the caller should close it
+     */
+    static EventInput openEventStream(String lastEventId) {
+        URI target = getNodeEventUri();
+        // @formatter:off
+        Builder builder = jaxrsClient
+                .target(target)
+                .request()
+                .header(HttpHeaders.AUTHORIZATION, getAuthHeader(null)); // @formatter:on
+        if (lastEventId != null) {
+            builder.header(SseFeature.LAST_EVENT_ID_HEADER, lastEventId);
+        }
+        return getCircuitBreaker().call(() -> builder.get(EventInput.class), e -> false);
+    }
+
+    /**
+     * @return the target of the connect token, identifies the connection that is made with it
+     * @throws IllegalStateException
+     *             if no connectToken has been set
+     */
+    URI getConnectTokenTarget() {
+        if (connectToken == null) {
+            throw new IllegalStateException(NO_CT_SET);
+        }
+        return connectToken.target;
+    }
+
+    /**
+     * Fetches (and caches) the node's API information, used by {@link WarmUp}
+     */
+    static void warmUpNodeApi() {
+        getNodeEventUri();
+    }
+
+    /**
+     * Makes a cheap call to the node (its API information), used by {@link HealthMonitor}
+     * 
+     * @return the HTTP status of the response
+     * @throws NodeUnavailableException
+     *             if the circuit breaker is open
+     */
+    static int probeNode() {
+        Response response = doGet(URI.create(getConfig().nodeConfig.endpoint));
+        try {
+            return response.getStatus();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Generates QR codes and signatures for a dummy connect token, so that the JIT compiles those paths before the
+     * first user needs them. Used by {@link WarmUp}
+     * 
+     * @param iterations
+     *            how many QR codes and signatures to generate
+     */
+    static void warmUpCodePaths(int iterations) {
+        byte[] secret = new byte[16];
+        ConnectToken dummy = new ConnectToken(URI.create(getConfig().nodeConfig.endpoint), secret, null, "warm-up",
+                Boolean.TRUE);
+        QiyNodeClient client = new QiyNodeClient(dummy);
+        byte[] data = dummy.toJSON().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < iterations; i++) {
+            client.connectTokenAsQRCode();
+            client.connectTokenAsDappreLink();
+            getAuthHeader(data);
+        }
+    }
+
     private static URI getNodeEventUri() {
         if (nodeEventUri == null) {
             Map<String, Object> apiInfo = getNodeApiInfo();
@@ -517,22 +654,27 @@ public class QiyNodeClient {
     }
 
     /**
+     * Reads the share actions of our card from the card API and replaces the current card share data with them. Uses
+     * conditional requests, so an unchanged API answers with 304 and the current data is kept
+     * 
      * @param baseDappreURL
+     *            the base URL for Dappre
+     * @return true if the card share data has been refreshed (or confirmed to be unchanged)
      */
-    public static void readCardMessage(URL baseDappreURL) {
+    public static boolean readCardMessage(URL baseDappreURL) {
         try {
             URI cardApiURI = baseDappreURL.toURI().resolve("api");
             Map<String, Object> api = responseForReadCardMessage(cardApiURI, "Could not get CardAPI information.");
             if (api == null) {
                 // logging will have been done
-                return;
+                return false;
             }
             @SuppressWarnings("unchecked")
             URI cardsURI = URI.create((String) ((Map<String, Object>) api.get("links")).get("cards"));
             Map<String, Object> cardsWithAttributes = responseForReadCardMessage(cardsURI, "Could not get Cards.");
             if (cardsWithAttributes == null) {
                 // logging will have been done
-                return;
+                return false;
             }
 
             @SuppressWarnings("unchecked")
@@ -542,7 +684,7 @@ public class QiyNodeClient {
                 if (cardShareData == null) {
                     LOGGER.error("cardShareData is still null!");
                 }
-                return;
+                return false;
             }
             // else get share action for the first card
             @SuppressWarnings("unchecked")
@@ -550,19 +692,59 @@ public class QiyNodeClient {
                     .create((String) ((Map<String, Object>) cards.iterator().next().get("links")).get("shareAction"));
             Map<String, Object> shareAction = responseForReadCardMessage(shareActionUri,
                     "Could not get share action " + shareActionUri);
-            if (shareAction != null && !shareAction.isEmpty()) {
+            if (shareAction == null || shareAction.isEmpty()) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> actions = (List<Map<String, Object>>) shareAction.get("actions");
+            CardShareData current = cardShareData;
+            if (current != null && current.actions.equals(actions)) {
+                LOGGER.debug("cardShareData is unchanged");
+                cardShareData = current.verified(Instant.now());
+            } else {
                 LOGGER.info("updating cardShareData");
-                cardShareData = (List<Map<String, Object>>) shareAction.get("actions");
+                cardShareData = new CardShareData(actions == null ? Collections.emptyList() : actions, Instant.now());
             }
+            return true;
         } catch (URISyntaxException e) {
             LOGGER.error("Error while doing registerCallback", e);
             throw new IllegalStateException("Please check your configuration");
         }
     }
 
+    /**
+     * @return the number of seconds since the card share data was last confirmed by the card API, -1 if it has never
+     *         been read
+     */
+    static long getCardShareDataAgeInSeconds() {
+        CardShareData snapshot = cardShareData;
+        return snapshot == null ? -1L : snapshot.getAge().getSeconds();
+    }
+
+    @SuppressWarnings("unchecked")
     private static Map<String, Object> responseForReadCardMessage(URI uri, String message) {
-        Response apiResponse = doGet(uri);
+        CachedResponse cached = CARD_API_RESPONSES.get(uri);
+        // @formatter:off
+        Builder builder = jaxrsClient
+                .target(uri)
+                .request(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, getAuthHeader(null)); // @formatter:on
+        if (cached != null && cached.eTag != null) {
+            builder.header(HttpHeaders.IF_NONE_MATCH, cached.eTag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            builder.header(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+        }
+        // not through the node's circuit breaker, an outage of the card API must not block logins. The refresher backs
+        // off by itself
+        Response apiResponse = builder.get();
+        if (cached != null && apiResponse.getStatus() == Status.NOT_MODIFIED.getStatusCode()) {
+            apiResponse.close();
+            LOGGER.debug("{} not modified", uri);
+            return cached.body;
+        }
         if (apiResponse.getStatusInfo().getFamily() != Status.Family.SUCCESSFUL) {
+            apiResponse.close();
             LOGGER.error("{} Status {}", message, apiResponse.getStatus());
             if (cardShareData == null) {
                 LOGGER.error("cardShareData is still null!");
@@ -570,7 +752,15 @@ public class QiyNodeClient {
             return null;
         }
 
-        return apiResponse.readEntity(HashMap.class);
+        String eTag = apiResponse.getHeaderString(HttpHeaders.ETAG);
+        String lastModified = apiResponse.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        Map<String, Object> body = apiResponse.readEntity(HashMap.class);
+        if (eTag == null && lastModified == null) {
+            CARD_API_RESPONSES.remove(uri);
+        } else {
+            CARD_API_RESPONSES.put(uri, new CachedResponse(eTag, lastModified, body));
+        }
+        return body;
     }
 
 }
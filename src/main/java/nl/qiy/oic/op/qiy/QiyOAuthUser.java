@@ -74,6 +74,22 @@ public class QiyOAuthUser implements OAuthUser {
         this.cbInput = input.cbInput;
     }
 
+    /**
+     * Restores a user that has logged in before, from what was kept of it. The body of the callback is not restored
+     * 
+     * @param subject
+     *            the pid
+     * @param connectionUri
+     *            the URI of the connection
+     * @param loginTime
+     *            when the user logged in
+     */
+    public QiyOAuthUser(String subject, URI connectionUri, Instant loginTime) {
+        super();
+        this.cbInput = new CallbackInput(subject, connectionUri.toString(), null);
+        this.loginTime = loginTime.toEpochMilli();
+    }
+
     @Override
     public Instant getLoginTime() {
         return Instant.ofEpochMilli(loginTime);
@@ -100,15 +116,19 @@ public class QiyOAuthUser implements OAuthUser {
      */
     public void setClaims(StandardClaims standardClaims) {
         claims = standardClaims;
+        ClaimsCache.put(getSubject(), getConnectionUri(), claims);
     }
 
     /**
-     * Simple getter
+     * Simple getter, falls back to the {@link ClaimsCache} since the claims are not serialized
      * 
      * @return the claims
      */
     @Override
     public StandardClaims getClaims() {
+        if (claims == null) {
+            claims = ClaimsCache.getIfPresent(getSubject());
+        }
         return claims;
     }
 
@@ -122,6 +142,20 @@ public class QiyOAuthUser implements OAuthUser {
             unsetClaims();
             return;
         }
+        setClaims(toClaims(cbInput.pid, map));
+    }
+
+    /**
+     * @param pid
+     *            the subject
+     * @param map
+     *            see {@link #setClaims(Map)}
+     * @return the claims, null if the map is empty
+     */
+    static StandardClaims toClaims(String pid, Map<String, Object> map) {
+        if (map == null || map.isEmpty()) {
+            return null;
+        }
         Long updatedAt = map.containsKey("lastUpdatedDate") ? Long.valueOf((String) map.get("lastUpdatedDate")) : null;
         @SuppressWarnings("unchecked")
         AddressClaim address = cardAddressToAddressClaim((Map<String, String>) map.get("address"));
@@ -129,8 +163,8 @@ public class QiyOAuthUser implements OAuthUser {
         // resulted in response header too large, so using null
         String pictureURL = null;
         // @formatter:off
-        this.claims = new StandardClaims(
-            cbInput.pid,                      // sub 
+        return new StandardClaims(
+            pid,                              // sub 
             null,                             // name
             (String) map.get("firstName"),    // givenName
             (String) map.get("lastName"),     // familyName
@@ -150,7 +184,6 @@ public class QiyOAuthUser implements OAuthUser {
             Boolean.FALSE,                    // phoneNumberVerified
             address,                          // address
             updatedAt); // @formatter:on
-
     }
 
     private static AddressClaim cardAddressToAddressClaim(Map<String, String> input) {
@@ -177,6 +210,7 @@ public class QiyOAuthUser implements OAuthUser {
 
     public void unsetClaims() {
         this.claims = null;
+        ClaimsCache.invalidate(getSubject());
     }
 
     /**
@@ -186,7 +220,7 @@ public class QiyOAuthUser implements OAuthUser {
      */
     public URI getReferenceUri() {
         if (referenceUri == null) {
-            QiyConnection connection = QiyNodeClient.get(getConnectionUri(), QiyConnection.class);
+            QiyConnection connection = ConnectionCache.get(getConnectionUri());
             if (connection == null) {
                 return null;
             }
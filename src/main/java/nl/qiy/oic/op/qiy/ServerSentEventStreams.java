@@ -42,6 +42,7 @@ import com.google.common.cache.CacheBuilder;
 
 import io.dropwizard.jackson.Jackson;
 import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
 
 /**
  * Manages the EventOutputs
@@ -104,7 +105,8 @@ public class ServerSentEventStreams implements Managed {
             .newBuilder()
             .maximumSize(1_000_000)
             .expireAfterWrite(30L, TimeUnit.MINUTES)
-            .removalListener(notification -> {
+            .recordStats()
+            .removalListener(CacheMetrics.countingRemovals("sseStreams", notification -> {
                 LOGGER.debug("streamId {} is being removed from storage", notification.getKey());
                 String key = (String) notification.getKey();
                 @SuppressWarnings("resource")
@@ -121,7 +123,7 @@ public class ServerSentEventStreams implements Managed {
                 } catch (Exception e) {
                     LOGGER.warn("Error while closing stream {} for streamId {}", value, key, e);
                 }
-            })
+            }))
             .build();
     // @formatter:on
 
@@ -339,6 +341,8 @@ public class ServerSentEventStreams implements Managed {
         heartbeatThread.execute(() -> Thread.currentThread().setName("ServerSentEventStreams-heartbeat"));
         heartbeatThread.scheduleWithFixedDelay(new ClosedEventOutputCleaner(this), 10, 10, TimeUnit.SECONDS);
         LOGGER.info("Running heartbeat every 10 s. (not configurable)");
+        // rough estimate: the id, the output and its buffers
+        CacheMetrics.register("sseStreams", streamById, 1000L);
     }
 
     @Override
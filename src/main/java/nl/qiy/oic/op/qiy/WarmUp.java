@@ -0,0 +1,193 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.qiy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.config.ConfigurationImpl;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.keystore.SecretStoreImpl;
+
+/**
+ * Initialises the expensive, lazily created resources (Qiy logo, node API information, URI builders, key stores,
+ * validator) in parallel at startup instead of on the first user requests. Until that has been done (or the configured
+ * timeout has passed) the {@link #getReadinessCheck() readiness check} reports unhealthy, so that a load balancer can
+ * keep traffic away from this instance.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class WarmUp implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+
+    /**
+     * Singleton object
+     */
+    private static final WarmUp instance = new WarmUp();
+
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+    private final HealthCheck readinessCheck = new HealthCheck() {
+        @Override
+        protected Result check() {
+            if (!ready) {
+                return Result.unhealthy("warming up");
+            }
+            if (failures.isEmpty()) {
+                return Result.healthy();
+            }
+            return Result.healthy("warm, but failed: " + failures);
+        }
+    };
+
+    private volatile boolean ready = false;
+    private ExecutorService executor;
+    private ScheduledExecutorService timeoutThread;
+
+    /**
+     * Default constructor for WarmUp
+     */
+    private WarmUp() {
+        super();
+    }
+
+    /**
+     * Returns the singleton object
+     * 
+     * @return see description
+     */
+    public static WarmUp getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true if the warm-up has finished (whether or not all tasks succeeded) or timed out
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return a health check that should be registered by the application, it reports healthy when this instance is
+     *         ready to receive traffic
+     */
+    public HealthCheck getReadinessCheck() {
+        return readinessCheck;
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        WarmUpConfig config = OpSdkSpiImplConfiguration.getInstance().warmUpConfig;
+        if (!config.enabled.booleanValue()) {
+            LOGGER.info("Warm-up is disabled");
+            ready = true;
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(config.threads.intValue(),
+                r -> new Thread(r, "WarmUp-" + count.incrementAndGet()));
+        timeoutThread = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "WarmUp-timeout"));
+
+        // @formatter:off
+        CompletableFuture<?>[] futures = getTasks(config)
+                .entrySet()
+                .stream()
+                .map(e -> CompletableFuture.runAsync(() -> run(e.getKey(), e.getValue()), executor))
+                .toArray(CompletableFuture[]::new); // @formatter:on
+        long started = System.currentTimeMillis();
+        CompletableFuture.allOf(futures).whenComplete((v, t) -> {
+            ready = true;
+            LOGGER.info("Warm-up finished in {} ms, {} failure(s)", System.currentTimeMillis() - started,
+                    failures.size());
+        });
+        timeoutThread.schedule(() -> {
+            if (!ready) {
+                LOGGER.warn("Warm-up did not finish within {} s, reporting ready anyway", config.timeoutInSeconds);
+                ready = true;
+            }
+        }, config.timeoutInSeconds.longValue(), TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    /**
+     * @param config
+     *            the warm-up configuration
+     * @return the tasks to be run, by name
+     */
+    private static Map<String, Runnable> getTasks(WarmUpConfig config) {
+        Map<String, Runnable> tasks = new LinkedHashMap<>();
+        tasks.put("qiyLogo", QiyNodeClient::qiyLogo);
+        tasks.put("nodeApi", QiyNodeClient::warmUpNodeApi);
+        tasks.put("uriBuilders", QiyAuthorizationFlow::warmUpUriBuilders);
+        tasks.put("configuration", () -> new ConfigurationImpl().isHealthy());
+        SecretStoreImpl secretStore = new SecretStoreImpl();
+        for (String type : OpSdkSpiImplConfiguration.getInstance().jwkConfigs.keySet()) {
+            tasks.put("keystore-" + type, () -> secretStore.getJWKSet(type));
+        }
+        int iterations = config.syntheticIterations.intValue();
+        if (iterations > 0) {
+            tasks.put("synthetic", () -> QiyNodeClient.warmUpCodePaths(iterations));
+        }
+        return tasks;
+    }
+
+    /**
+     * Runs a single task, recording whether it failed
+     * 
+     * @param name
+     *            name of the task
+     * @param task
+     *            the task
+     */
+    private void run(String name, Runnable task) {
+        long started = System.currentTimeMillis();
+        try {
+            task.run();
+            LOGGER.info("Warm-up of {} took {} ms", name, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            failures.put(name, String.valueOf(e.getMessage()));
+            LOGGER.warn("Warm-up of {} failed after {} ms", name, System.currentTimeMillis() - started, e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            timeoutThread.shutdownNow();
+        }
+        LOGGER.info("Shut down warm-up");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the warm-up that is done at startup, will default to:
+ * <dl>
+ * <dt>enabled
+ * <dd>true
+ * <dt>threads
+ * <dd>4
+ * <dt>syntheticIterations
+ * <dd>0
+ * <dt>timeoutInSeconds
+ * <dd>60
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class WarmUpConfig {
+
+    public final Boolean enabled;
+    public final Integer threads;
+    public final Integer syntheticIterations;
+    public final Integer timeoutInSeconds;
+
+    /**
+     * Default constructor for WarmUpConfig, using all the defaults
+     */
+    public WarmUpConfig() {
+        this(null, null, null, null);
+    }
+
+    /**
+     * Constructor for WarmUpConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param enabled
+     *            if false, no warm-up is done and the instance is ready immediately
+     * @param threads
+     *            number of threads that do the warm-up tasks in parallel
+     * @param syntheticIterations
+     *            number of QR codes and signatures that are generated to have the JIT compile those paths
+     * @param timeoutInSeconds
+     *            the instance is reported ready after this time, even if not all tasks have finished
+     */
+    // @formatter:off
+    @JsonCreator
+    public WarmUpConfig(
+            @JsonProperty("enabled") Boolean enabled, 
+            @JsonProperty("threads") Integer threads,
+            @JsonProperty("syntheticIterations") Integer syntheticIterations,
+            @JsonProperty("timeoutInSeconds") Integer timeoutInSeconds) {// @formatter:on
+        super();
+        this.enabled = enabled == null ? Boolean.TRUE : enabled;
+        this.threads = threads == null ? Integer.valueOf(4) : threads;
+        this.syntheticIterations = syntheticIterations == null ? Integer.valueOf(0) : syntheticIterations;
+        this.timeoutInSeconds = timeoutInSeconds == null ? Integer.valueOf(60) : timeoutInSeconds;
+    }
+}
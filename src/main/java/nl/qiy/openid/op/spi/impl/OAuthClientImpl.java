@@ -24,13 +24,13 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URI;
 import java.util.Collection;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import nl.qiy.oic.op.domain.OAuthClient;
 import nl.qiy.openid.op.spi.impl.config.OAuthClientConfig;
+import nl.qiy.openid.op.spi.impl.config.UriMatcher;
 
 /**
  * The demo implementation for a {@link OAuthClient}
@@ -50,7 +50,7 @@ public final class OAuthClientImpl implements OAuthClient {
 
     public final String id;
     public final Collection<String> origin;
-    private final Pattern uriPattern;
+    private final UriMatcher uriMatcher;
 
     /**
      * Default constructor for ClientImpl
@@ -62,7 +62,7 @@ public final class OAuthClientImpl implements OAuthClient {
         super();
         this.id = conf.id;
         this.origin = conf.origin;
-        uriPattern = conf.getUriPattern();
+        uriMatcher = conf.getUriMatcher();
     }
 
     @Override
@@ -71,7 +71,7 @@ public final class OAuthClientImpl implements OAuthClient {
             throw new NullPointerException("null input is not allowed for ownsURI in " + this.getClass().getName());
         }
         LOGGER.debug("checking {} for client {}", redirectUri, id);
-        return uriPattern.matcher(redirectUri.toString()).matches();
+        return uriMatcher.matches(redirectUri);
     }
 
     /**
@@ -0,0 +1,88 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the store for the bearer (access) tokens. Will default to:
+ * <dl>
+ * <dt>maximumSize
+ * <dd>100000
+ * <dt>maxTtlInSeconds
+ * <dd>900 (also used for tokens without an exp)
+ * <dt>selfContained
+ * <dd>false (if true, bearer tokens can carry the ID token themselves, signed and optionally encrypted)
+ * <dt>keyPurpose
+ * <dd>accessToken (the entry of the jwkConfigs with the keys for the self-contained tokens, which should not be the
+ * keys that sign the ID tokens)
+ * <dt>encrypt
+ * <dd>false
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class BearerStoreConfig {
+
+    public final Long maximumSize;
+    public final Integer maxTtlInSeconds;
+    public final Boolean selfContained;
+    public final String keyPurpose;
+    public final Boolean encrypt;
+
+    /**
+     * Default constructor for BearerStoreConfig, using all the defaults
+     */
+    public BearerStoreConfig() {
+        this(null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for BearerStoreConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param maximumSize
+     *            maximum number of bearer tokens that are kept, the least recently used are removed first
+     * @param maxTtlInSeconds
+     *            a bearer token is never kept longer than this, even if its ID token expires later
+     * @param selfContained
+     *            if true, bearer tokens that carry their ID token are accepted without a lookup
+     * @param keyPurpose
+     *            the purpose (key of the jwkConfigs) of the keys that sign (and encrypt) the self-contained tokens
+     * @param encrypt
+     *            if true, the self-contained tokens are encrypted as well as signed
+     */
+    // @formatter:off
+    @JsonCreator
+    public BearerStoreConfig(
+            @JsonProperty("maximumSize") Long maximumSize,
+            @JsonProperty("maxTtlInSeconds") Integer maxTtlInSeconds,
+            @JsonProperty("selfContained") Boolean selfContained,
+            @JsonProperty("keyPurpose") String keyPurpose,
+            @JsonProperty("encrypt") Boolean encrypt) {// @formatter:on
+        super();
+        this.maximumSize = maximumSize == null ? Long.valueOf(100_000L) : maximumSize;
+        this.maxTtlInSeconds = maxTtlInSeconds == null ? Integer.valueOf(900) : maxTtlInSeconds;
+        this.selfContained = selfContained == null ? Boolean.FALSE : selfContained;
+        this.keyPurpose = keyPurpose == null ? "accessToken" : keyPurpose;
+        this.encrypt = encrypt == null ? Boolean.FALSE : encrypt;
+    }
+}
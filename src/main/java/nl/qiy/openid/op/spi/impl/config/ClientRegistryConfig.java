@@ -0,0 +1,68 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the client registry, which can load client definitions from a file or directory in addition to
+ * {@link OpSdkSpiImplConfiguration#clientConfig}. Will default to:
+ * <dl>
+ * <dt>path
+ * <dd>null (only the clients in the configuration are used)
+ * <dt>reloadDelayInMillis
+ * <dd>500
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class ClientRegistryConfig {
+
+    public final String path;
+    public final Integer reloadDelayInMillis;
+
+    /**
+     * Default constructor for ClientRegistryConfig, using all the defaults
+     */
+    public ClientRegistryConfig() {
+        this(null, null);
+    }
+
+    /**
+     * Constructor for ClientRegistryConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param path
+     *            a YAML or JSON file, or a directory of those (*.yml, *.yaml, *.json), that holds a client definition
+     *            or a list of them, in the same format as the clientConfig. The file or directory is watched and the
+     *            clients are reloaded when it changes. Clients in these files replace configured clients with the same
+     *            id
+     * @param reloadDelayInMillis
+     *            after a change has been noticed, wait this long for further changes before reloading
+     */
+    @JsonCreator
+    public ClientRegistryConfig(@JsonProperty("path") String path,
+            @JsonProperty("reloadDelayInMillis") Integer reloadDelayInMillis) {
+        super();
+        this.path = path;
+        this.reloadDelayInMillis = reloadDelayInMillis == null ? Integer.valueOf(500) : reloadDelayInMillis;
+    }
+}
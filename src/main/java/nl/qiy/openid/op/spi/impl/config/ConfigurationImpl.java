@@ -45,13 +45,31 @@ public class ConfigurationImpl implements Configuration {
      */
     private OpSdkSpiImplConfiguration delegate;
 
-    private ValidatorFactory validationFactory = Validation.buildDefaultValidatorFactory();
+    /**
+     * Shared between instances, so that the validation metadata only has to be built once
+     */
+    private static final ValidatorFactory VALIDATION_FACTORY = Validation.buildDefaultValidatorFactory();
+
+    /**
+     * The configuration object that was validated and the outcome. The configuration is immutable, so it only has to
+     * be validated again when another one has been loaded
+     */
+    private static volatile OpSdkSpiImplConfiguration validated;
+    private static volatile boolean valid;
 
     @Override
     public boolean isHealthy() {
-        boolean result = getDelegate() != null && validationFactory.getValidator().validate(getDelegate()).isEmpty();
-        LOGGER.debug("{} init called: {}", this.getClass(), result);
-        return result;
+        OpSdkSpiImplConfiguration config = getDelegate();
+        if (config != validated) {
+            synchronized (ConfigurationImpl.class) {
+                if (config != validated) {
+                    valid = VALIDATION_FACTORY.getValidator().validate(config).isEmpty();
+                    validated = config;
+                    LOGGER.debug("{} validated the configuration: {}", this.getClass(), valid);
+                }
+            }
+        }
+        return valid;
     }
 
     /**
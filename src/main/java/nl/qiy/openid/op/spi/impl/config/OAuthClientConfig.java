@@ -52,6 +52,8 @@ public final class OAuthClientConfig {
 
     private final Pattern uriPattern;
 
+    private final UriMatcher uriMatcher;
+
     @JsonCreator
     public OAuthClientConfig(@JsonProperty("id") String id, @JsonProperty("uriRegex") String uriRegex,
             @JsonProperty("origin") Collection<String> origin) {
@@ -59,6 +61,7 @@ public final class OAuthClientConfig {
         this.id = id;
         this.uriRegex = Strings.isNullOrEmpty(uriRegex) ? "^https?://.*" : uriRegex;
         this.uriPattern = Pattern.compile(this.uriRegex);
+        this.uriMatcher = UriMatcher.compile(this.uriRegex);
         this.origin = origin == null ? Collections.emptyList() : origin;
     }
 
@@ -70,4 +73,13 @@ public final class OAuthClientConfig {
     public Pattern getUriPattern() {
         return uriPattern;
     }
+
+    /**
+     * Gets the matcher that was created from {@link #uriRegex}
+     * 
+     * @return see description
+     */
+    public UriMatcher getUriMatcher() {
+        return uriMatcher;
+    }
 }
@@ -24,6 +24,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotEmpty;
@@ -33,8 +34,18 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
 
 import io.dropwizard.Configuration;
+import nl.qiy.oic.op.qiy.CallbackConfig;
+import nl.qiy.oic.op.qiy.CardDataConfig;
+import nl.qiy.oic.op.qiy.CircuitBreakerConfig;
+import nl.qiy.oic.op.qiy.ClaimsCacheConfig;
+import nl.qiy.oic.op.qiy.ConnectionCacheConfig;
+import nl.qiy.oic.op.qiy.HealthConfig;
+import nl.qiy.oic.op.qiy.HedgingConfig;
+import nl.qiy.oic.op.qiy.NodeClientConfig;
+import nl.qiy.oic.op.qiy.NodeEventsConfig;
 import nl.qiy.oic.op.qiy.QRConfig;
 import nl.qiy.oic.op.qiy.QiyNodeConfig;
+import nl.qiy.oic.op.qiy.WarmUpConfig;
 
 /**
  * Main configuration class. Loaded by Dropwizard, also implements the Qiy openid-connect-idp configuration interface
@@ -53,6 +64,35 @@ public class OpSdkSpiImplConfiguration extends Configuration {
     public final QiyNodeConfig nodeConfig;
     @NotNull
     public final CryptoConfig cryptoConfig;
+    @NotNull
+    public final CallbackConfig callbackConfig;
+    @NotNull
+    public final WarmUpConfig warmUpConfig;
+    @NotNull
+    public final CardDataConfig cardDataConfig;
+    @NotNull
+    public final CircuitBreakerConfig circuitBreakerConfig;
+    @NotNull
+    public final HedgingConfig hedgingConfig;
+    @NotNull
+    public final NodeEventsConfig nodeEventsConfig;
+    @NotNull
+    public final ConnectionCacheConfig connectionCacheConfig;
+    @NotNull
+    public final ClaimsCacheConfig claimsCacheConfig;
+    @NotNull
+    public final BearerStoreConfig bearerStoreConfig;
+    @NotNull
+    public final SessionCookieConfig sessionCookieConfig;
+    @NotNull
+    public final ClientRegistryConfig clientRegistryConfig;
+    @NotNull
+    public final HealthConfig healthConfig;
+    /**
+     * optional, if null the JAX-RS client set by the application is used for the calls to the node
+     */
+    @Valid
+    public final NodeClientConfig nodeClientConfig;
     @NotEmpty
     public final String baseUri;
     @NotEmpty
@@ -92,7 +132,21 @@ public class OpSdkSpiImplConfiguration extends Configuration {
             @JsonProperty("cardMsgUri") String cardMsgUri,
             @JsonProperty("cardLoginOption") String cardLoginOption,
             @JsonProperty("welcomeMessage") String welcomeMessage,
-            @JsonProperty("jedisConfiguration") Object jedisConfiguration) throws MalformedURLException {
+            @JsonProperty("jedisConfiguration") Object jedisConfiguration,
+            @JsonProperty("callbackConfig") CallbackConfig callbackConfig,
+            @JsonProperty("warmUpConfig") WarmUpConfig warmUpConfig,
+            @JsonProperty("cardDataConfig") CardDataConfig cardDataConfig,
+            @JsonProperty("nodeClientConfig") NodeClientConfig nodeClientConfig,
+            @JsonProperty("circuitBreakerConfig") CircuitBreakerConfig circuitBreakerConfig,
+            @JsonProperty("hedgingConfig") HedgingConfig hedgingConfig,
+            @JsonProperty("nodeEventsConfig") NodeEventsConfig nodeEventsConfig,
+            @JsonProperty("connectionCacheConfig") ConnectionCacheConfig connectionCacheConfig,
+            @JsonProperty("claimsCacheConfig") ClaimsCacheConfig claimsCacheConfig,
+            @JsonProperty("bearerStoreConfig") BearerStoreConfig bearerStoreConfig,
+            @JsonProperty("sessionCookieConfig") SessionCookieConfig sessionCookieConfig,
+            @JsonProperty("clientRegistryConfig") ClientRegistryConfig clientRegistryConfig,
+            @JsonProperty("healthConfig") HealthConfig healthConfig)
+            throws MalformedURLException {
         // @formatter:on
         super();
         this.sessionTimeoutInSeconds = sessionTimeoutInSeconds;
@@ -100,6 +154,20 @@ public class OpSdkSpiImplConfiguration extends Configuration {
         this.cryptoConfig = cryptoConfig == null ? new CryptoConfig() : cryptoConfig;
         this.nodeConfig = nodeConfig;
         this.qrConfig = qrConfig == null ? new QRConfig() : qrConfig;
+        this.callbackConfig = callbackConfig == null ? new CallbackConfig() : callbackConfig;
+        this.warmUpConfig = warmUpConfig == null ? new WarmUpConfig() : warmUpConfig;
+        this.cardDataConfig = cardDataConfig == null ? new CardDataConfig() : cardDataConfig;
+        this.nodeClientConfig = nodeClientConfig;
+        this.circuitBreakerConfig = circuitBreakerConfig == null ? new CircuitBreakerConfig() : circuitBreakerConfig;
+        this.hedgingConfig = hedgingConfig == null ? new HedgingConfig() : hedgingConfig;
+        this.nodeEventsConfig = nodeEventsConfig == null ? new NodeEventsConfig() : nodeEventsConfig;
+        this.connectionCacheConfig = connectionCacheConfig == null ? new ConnectionCacheConfig()
+                : connectionCacheConfig;
+        this.claimsCacheConfig = claimsCacheConfig == null ? new ClaimsCacheConfig() : claimsCacheConfig;
+        this.bearerStoreConfig = bearerStoreConfig == null ? new BearerStoreConfig() : bearerStoreConfig;
+        this.sessionCookieConfig = sessionCookieConfig == null ? new SessionCookieConfig() : sessionCookieConfig;
+        this.clientRegistryConfig = clientRegistryConfig == null ? new ClientRegistryConfig() : clientRegistryConfig;
+        this.healthConfig = healthConfig == null ? new HealthConfig() : healthConfig;
         this.baseUri = baseUri;
         this.dappreBaseURI = new URL(dappreBaseUri);
         this.registerCallbackUri = registerCallbackUri;
@@ -0,0 +1,113 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.config;
+
+import java.util.Base64;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the cookie that holds the logged in user, instead of the HTTP session. Will default to:
+ * <dl>
+ * <dt>enabled
+ * <dd>false
+ * <dt>name
+ * <dd>qiy_session
+ * <dt>secret
+ * <dd>null (a random key is used, which means the cookies can only be read by this instance until it restarts)
+ * <dt>maxAgeInSeconds
+ * <dd>3600
+ * <dt>secure
+ * <dd>true
+ * <dt>path
+ * <dd>/
+ * </dl>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class SessionCookieConfig {
+
+    public final Boolean enabled;
+    public final String name;
+    public final String secret;
+    public final Integer maxAgeInSeconds;
+    public final Boolean secure;
+    public final String path;
+
+    /**
+     * Default constructor for SessionCookieConfig, using all the defaults
+     */
+    public SessionCookieConfig() {
+        this(null, null, null, null, null, null);
+    }
+
+    /**
+     * Constructor for SessionCookieConfig that sets all the values (using defaults if given values are null).
+     * 
+     * @param enabled
+     *            if true, the logged in user is kept in a cookie
+     * @param name
+     *            the name of the cookie
+     * @param secret
+     *            Base64 encoded 256 bits AES key, used to encrypt and authenticate the cookie. Must be the same for all
+     *            instances
+     * @param maxAgeInSeconds
+     *            the cookie (and the login in it) is valid for this long
+     * @param secure
+     *            if true, the cookie is only sent over HTTPS
+     * @param path
+     *            the path of the cookie
+     * @throws IllegalArgumentException
+     *             if the secret is not 32 bytes
+     */
+    // @formatter:off
+    @JsonCreator
+    public SessionCookieConfig(
+            @JsonProperty("enabled") Boolean enabled, 
+            @JsonProperty("name") String name,
+            @JsonProperty("secret") String secret,
+            @JsonProperty("maxAgeInSeconds") Integer maxAgeInSeconds,
+            @JsonProperty("secure") Boolean secure,
+            @JsonProperty("path") String path) {// @formatter:on
+        super();
+        this.enabled = enabled == null ? Boolean.FALSE : enabled;
+        this.name = name == null ? "qiy_session" : name;
+        this.secret = secret;
+        this.maxAgeInSeconds = maxAgeInSeconds == null ? Integer.valueOf(3600) : maxAgeInSeconds;
+        this.secure = secure == null ? Boolean.TRUE : secure;
+        this.path = path == null ? "/" : path;
+        if (secret != null && getKeyLength(secret) != 32) {
+            throw new IllegalArgumentException("The secret for the session cookies must be 32 bytes, Base64 encoded");
+        }
+    }
+
+    /**
+     * @return the number of bytes in the Base64 encoded key, -1 if it is not Base64
+     */
+    private static int getKeyLength(String secret) {
+        try {
+            return Base64.getDecoder().decode(secret).length;
+        } catch (IllegalArgumentException e) { // NOSONAR, reported by the caller
+            return -1;
+        }
+    }
+}
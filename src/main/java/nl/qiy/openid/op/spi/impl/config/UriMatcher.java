@@ -0,0 +1,194 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.config;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Decides whether a redirect URI matches {@link OAuthClientConfig#uriRegex}. Most of those regexes are a scheme, a host
+ * and a path prefix, like {@code ^https://app\.example\.com/callback.*}. Those are recognised when the configuration
+ * is loaded and matched by comparing the URI with the literal prefix(es), without running a regex. Other regexes are
+ * matched by the regex, with a small cache of recent verdicts in front of it.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class UriMatcher implements Serializable {
+    /**
+     * Generated
+     */
+    private static final long serialVersionUID = 1L;
+    private static final String ANY_HTTP = "https?://";
+    private static final String META = ".[]{}()*+?^$|";
+    private static final int MAX_VERDICTS = 256;
+
+    private final Pattern pattern;
+    /**
+     * The literal prefixes (one per scheme), null if the regex was not recognised
+     */
+    private final List<String> literals;
+    /**
+     * If true, anything (but a line terminator) may follow the literal, else the URI must be equal to it
+     */
+    private final boolean prefix;
+    private transient volatile Cache<String, Boolean> verdicts;
+
+    private UriMatcher(Pattern pattern, List<String> literals, boolean prefix) {
+        super();
+        this.pattern = pattern;
+        this.literals = literals;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Compiles the regex
+     * 
+     * @param regex
+     *            the regex a redirect URI should match
+     * @return the matcher
+     */
+    public static UriMatcher compile(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        String rest = regex.startsWith("^") ? regex.substring(1) : regex;
+        if (rest.endsWith("$") && !isEscaped(rest, rest.length() - 1)) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+        boolean prefix = rest.endsWith(".*") && !isEscaped(rest, rest.length() - 2);
+        if (prefix) {
+            rest = rest.substring(0, rest.length() - 2);
+        }
+        List<String> schemes = Collections.singletonList("");
+        if (rest.startsWith(ANY_HTTP)) {
+            schemes = new ArrayList<>();
+            schemes.add("http://");
+            schemes.add("https://");
+            rest = rest.substring(ANY_HTTP.length());
+        }
+        String literal = unescape(rest);
+        if (literal == null) {
+            return new UriMatcher(pattern, null, false);
+        }
+        List<String> literals = new ArrayList<>();
+        for (String scheme : schemes) {
+            literals.add(scheme + literal);
+        }
+        return new UriMatcher(pattern, Collections.unmodifiableList(literals), prefix);
+    }
+
+    /**
+     * @return whether the char at the given index is preceded by an odd number of backslashes
+     */
+    private static boolean isEscaped(String regex, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    /**
+     * @return the string the regex matches literally, null if the regex is not a literal
+     */
+    private static String unescape(String regex) {
+        StringBuilder result = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+                // \d, \Q, \1 and the like are not literals
+                if (i == regex.length() || Character.isLetterOrDigit(regex.charAt(i))) {
+                    return null;
+                }
+                result.append(regex.charAt(i));
+            } else if (META.indexOf(c) >= 0) {
+                return null;
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return true if the regex was recognised and will not be run
+     */
+    public boolean isLiteral() {
+        return literals != null;
+    }
+
+    /**
+     * @param uri
+     *            the URI to check
+     * @return whether the URI matches the regex
+     */
+    public boolean matches(URI uri) {
+        String value = uri.toString();
+        if (literals == null) {
+            return matchRegex(value);
+        }
+        for (String literal : literals) {
+            if (prefix ? value.startsWith(literal) && noLineTerminator(value, literal.length())
+                    : value.equals(literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The dot in .* does not match line terminators, see {@link Pattern}
+     */
+    private static boolean noLineTerminator(String value, int from) {
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchRegex(String value) {
+        Cache<String, Boolean> cache = verdicts;
+        if (cache == null) {
+            cache = CacheBuilder.newBuilder().maximumSize(MAX_VERDICTS).build();
+            verdicts = cache;
+        }
+        Boolean verdict = cache.getIfPresent(value);
+        if (verdict == null) {
+            verdict = Boolean.valueOf(pattern.matcher(value).matches());
+            cache.put(value, verdict);
+        }
+        return verdict.booleanValue();
+    }
+
+    @Override
+    public String toString() {
+        return "UriMatcher [" + (literals == null ? pattern.pattern() : literals + (prefix ? "*" : "")) + "]";
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+/**
+ * Converts ECDSA signatures between the DER encoding of the JCA (a sequence of the integers r and s) and the JWS
+ * encoding (r and s as unsigned big-endian numbers of fixed length, concatenated), see RFC 7518, section 3.4
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class EcdsaSignatures {
+    private static final int SEQUENCE = 0x30;
+    private static final int INTEGER = 0x02;
+
+    /**
+     * Private constructor, utility class
+     */
+    private EcdsaSignatures() {
+        super();
+    }
+
+    /**
+     * @param algorithm
+     *            ES256, ES384 or ES512
+     * @return the length of r or s in the JWS encoding
+     */
+    static int getPartLength(JWSAlgorithm algorithm) {
+        if (JWSAlgorithm.ES256.equals(algorithm)) {
+            return 32;
+        } else if (JWSAlgorithm.ES384.equals(algorithm)) {
+            return 48;
+        } else if (JWSAlgorithm.ES512.equals(algorithm)) {
+            return 66;
+        }
+        throw new IllegalArgumentException("Not an ECDSA algorithm: " + algorithm);
+    }
+
+    /**
+     * @param der
+     *            the signature as created by the JCA
+     * @param algorithm
+     *            the algorithm
+     * @return the signature to be used in a JWS
+     * @throws SignatureException
+     *             if the DER can't be parsed
+     */
+    static byte[] toConcat(byte[] der, JWSAlgorithm algorithm) throws SignatureException {
+        int partLength = getPartLength(algorithm);
+        if (der.length < 8 || der[0] != SEQUENCE) {
+            throw new SignatureException("Not a DER encoded ECDSA signature");
+        }
+        // the length of the sequence takes one byte, or two when it is 128 or more (ES512)
+        int offset = (der[1] & 0x80) == 0 ? 2 : 3;
+        byte[] result = new byte[partLength * 2];
+        offset = copyInteger(der, offset, result, 0, partLength);
+        copyInteger(der, offset, result, partLength, partLength);
+        return result;
+    }
+
+    private static int copyInteger(byte[] der, int offset, byte[] target, int targetOffset, int partLength)
+            throws SignatureException {
+        if (offset + 2 > der.length || der[offset] != INTEGER) {
+            throw new SignatureException("Not a DER encoded ECDSA signature");
+        }
+        int length = der[offset + 1] & 0xff;
+        int start = offset + 2;
+        if (start + length > der.length) {
+            throw new SignatureException("Not a DER encoded ECDSA signature");
+        }
+        // skip the sign byte(s)
+        int from = start;
+        while (from < start + length - 1 && der[from] == 0) {
+            from++;
+        }
+        int significant = start + length - from;
+        if (significant > partLength) {
+            throw new SignatureException("ECDSA signature part too long");
+        }
+        System.arraycopy(der, from, target, targetOffset + partLength - significant, significant);
+        return start + length;
+    }
+
+    /**
+     * @param concat
+     *            the signature of a JWS
+     * @param algorithm
+     *            the algorithm
+     * @return the signature as the JCA expects it, or null if the signature has the wrong length
+     */
+    static byte[] toDER(byte[] concat, JWSAlgorithm algorithm) {
+        int partLength = getPartLength(algorithm);
+        if (concat.length != partLength * 2) {
+            return null;
+        }
+        byte[] r = new BigInteger(1, Arrays.copyOfRange(concat, 0, partLength)).toByteArray();
+        byte[] s = new BigInteger(1, Arrays.copyOfRange(concat, partLength, concat.length)).toByteArray();
+        int contentLength = r.length + s.length + 4;
+        ByteArrayOutputStream result = new ByteArrayOutputStream(contentLength + 3);
+        result.write(SEQUENCE);
+        if (contentLength >= 0x80) {
+            result.write(0x81);
+        }
+        result.write(contentLength);
+        result.write(INTEGER);
+        result.write(r.length);
+        result.write(r, 0, r.length);
+        result.write(INTEGER);
+        result.write(s.length);
+        result.write(s, 0, s.length);
+        return result.toByteArray();
+    }
+}
@@ -37,6 +37,8 @@ import java.security.interfaces.RSAPublicKey;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.crypto.SecretKey;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +47,7 @@ import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.ECKey;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.jwk.RSAKey;
 
 import nl.qiy.openid.op.spi.impl.config.JWKConfig;
@@ -130,6 +133,7 @@ import nl.qiy.openid.op.spi.impl.config.JWKConfig;
 public class JWKReader {
     private static final Logger LOGGER = LoggerFactory.getLogger(JWKReader.class);
     private static final Map<String, String> OID_MAP = new HashMap<>();
+    private static final Map<String, String> JCA_MAP = new HashMap<>();
 
     private final String alias;
     private final Entry entry;
@@ -162,20 +166,53 @@ public class JWKReader {
         OID_MAP.put("2.16.840.1.101.3.4.1.26", "A192GCM");
         OID_MAP.put("2.16.840.1.101.3.4.1.46", "A256GCM");
 
+        JCA_MAP.put("HS256", "HmacSHA256");
+        JCA_MAP.put("HS384", "HmacSHA384");
+        JCA_MAP.put("HS512", "HmacSHA512");
+        JCA_MAP.put("RS256", "SHA256withRSA");
+        JCA_MAP.put("RS384", "SHA384withRSA");
+        JCA_MAP.put("RS512", "SHA512withRSA");
+        JCA_MAP.put("ES256", "SHA256withECDSA");
+        JCA_MAP.put("ES384", "SHA384withECDSA");
+        JCA_MAP.put("ES512", "SHA512withECDSA");
+        JCA_MAP.put("PS256", "SHA256withRSAandMGF1");
+        JCA_MAP.put("PS384", "SHA384withRSAandMGF1");
+        JCA_MAP.put("PS512", "SHA512withRSAandMGF1");
     }
 
     public JWKReader(String alias, JWKConfig config) {
+        this(alias, config, loadKeyStore(config));
+    }
+
+    /**
+     * Constructor for JWKReader that uses a key store that has been loaded already, so that a key store holding
+     * multiple keys only has to be read once
+     * 
+     * @param alias
+     *            the alias of the key
+     * @param config
+     *            the configuration the key store was loaded with
+     * @param keyStore
+     *            the key store, see {@link #loadKeyStore(JWKConfig)}
+     */
+    public JWKReader(String alias, JWKConfig config, KeyStore keyStore) {
         super();
         this.alias = alias;
         this.config = config;
-        this.entry = loadKey();
+        this.entry = loadKey(keyStore);
     }
 
-    private KeyStore.Entry loadKey() {
+    /**
+     * Reads the key store in the configuration
+     * 
+     * @param config
+     *            the configuration
+     * @return the loaded key store
+     */
+    public static KeyStore loadKeyStore(JWKConfig config) {
         String keystoreFilename = config.keystoreFilename;
         String keystoreType = config.keystoreType;
         char[] keystorePass = config.keystorePassPhrase;
-        char[] keyPass = config.keyPassPhrase;
 
         File f = new File(keystoreFilename);
         if (!f.exists() || !f.isFile() || !f.canRead()) {
@@ -184,16 +221,29 @@ public class JWKReader {
         try (InputStream is = new FileInputStream(f)) {
             KeyStore keyStore = KeyStore.getInstance(keystoreType);
             keyStore.load(is, keystorePass);
+            return keyStore;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error while doing loadKeyStore", e);
+            throw e;
+        } catch (Exception e) {
+            LOGGER.warn("Error while doing loadKeyStore", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private KeyStore.Entry loadKey(KeyStore keyStore) {
+        char[] keyPass = config.keyPassPhrase;
+        try {
             ProtectionParameter protector = null;
             if (keyPass != null) {
                 protector = new KeyStore.PasswordProtection(keyPass);
             }
             return keyStore.getEntry(alias, protector);
         } catch (RuntimeException e) {
-            LOGGER.warn("Error while doing loadKeyStore", e);
+            LOGGER.warn("Error while doing loadKey", e);
             throw e;
         } catch (Exception e) {
-            LOGGER.warn("Error while doing loadKeyStore", e);
+            LOGGER.warn("Error while doing loadKey", e);
             throw new RuntimeException(e);
         }
     }
@@ -202,7 +252,7 @@ public class JWKReader {
         if (entry instanceof TrustedCertificateEntry) {
             throw new UnsupportedOperationException("trusted certificate is not yet implemented");
         } else if (entry instanceof SecretKeyEntry) {
-            throw new UnsupportedOperationException("secret key is not yet implemented");
+            return getSecretKeyJWK();
         } else if (entry instanceof PrivateKeyEntry) {
             return getPrivateKeyJWK();
         } else {
@@ -210,6 +260,16 @@ public class JWKReader {
         }
     }
 
+    /**
+     * @param algorithm
+     *            a JWS algorithm
+     * @return the name of the JCA {@link java.security.Signature} (or, for HMAC, {@link javax.crypto.Mac}) algorithm,
+     *         see the table above, or null if unknown
+     */
+    static String getJcaAlgorithm(JWSAlgorithm algorithm) {
+        return JCA_MAP.get(algorithm.getName());
+    }
+
     private JWK getPrivateKeyJWK() {
         PrivateKeyEntry pke = (PrivateKeyEntry) entry;
         X509Certificate certificate = (X509Certificate) pke.getCertificate();
@@ -251,6 +311,37 @@ public class JWKReader {
         }
     }
 
+    /**
+     * Reads an HMAC key. Its algorithm is taken from the key, which may hold the JCA name (e.g. HmacSHA256) or, for
+     * PKCS12 key stores, the OID.
+     * 
+     * @return an {@link OctetSequenceKey} for signing
+     */
+    private JWK getSecretKeyJWK() {
+        SecretKey secretKey = ((SecretKeyEntry) entry).getSecretKey();
+        String alg = OID_MAP.get(secretKey.getAlgorithm());
+        if (alg == null) {
+            alg = JCA_MAP.entrySet()
+                    .stream()
+                    .filter(kv -> kv.getValue().equalsIgnoreCase(secretKey.getAlgorithm()))
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (alg == null || !JWSAlgorithm.Family.HMAC_SHA.contains(JWSAlgorithm.parse(alg))) {
+            throw new UnsupportedOperationException(
+                    "Currently only HMAC secret keys are supported, not " + secretKey.getAlgorithm());
+        }
+        // @formatter:off
+        return new OctetSequenceKey
+                .Builder(secretKey)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.parse(alg))
+                .keyID(alias)
+                .build();
+        // @formatter:on
+    }
+
     /**
      * Returns null if both sign and enc are on or the certificate doesn't specify the key usage,
      * {@link KeyUse#SIGNATURE} if the 0th bit of the certificate's key use is on but the 7th not,
@@ -0,0 +1,321 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.AssymetricJWK;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.openid.op.spi.impl.config.JWKConfig;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Holds the keys from {@link OpSdkSpiImplConfiguration#jwkConfigs}, per purpose, so the key stores don't have to be
+ * read for every call to {@link SecretStoreImpl#getJWKSet(String)}. Every key store file is read once, no matter how
+ * many of its aliases are used. The keys are kept in an immutable {@link Snapshot} behind a volatile reference,
+ * together with the public keys serialized for {@link PublicKeysResource} and, by kid, ready-to-use signers and
+ * verifiers.
+ * <p>
+ * After {@link #start()} the directories of the key store files are watched. When anything in them changes, all keys
+ * are loaded again and published at once. If that fails, the previous keys stay. The metrics keys.reloads (count and
+ * time) and keys.reloadFailures tell how that went.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class KeyRegistry implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyRegistry.class);
+    /**
+     * key stores tend to be replaced in more than one step, wait this long for the rest of them
+     */
+    private static final long RELOAD_DELAY_IN_MILLIS = 500L;
+
+    private static KeyRegistry instance;
+
+    private final Map<String, Map<String, JWKConfig>> jwkConfigs;
+    private final Timer reloads;
+    private final Counter reloadFailures;
+    private volatile Snapshot snapshot;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * The keys at one moment in time
+     */
+    static final class Snapshot {
+        final Map<String, List<JWK>> keys;
+        final Map<String, PublicJWKS> publicJWKS;
+        final Map<String, PooledSigner> signers;
+        final Map<String, PooledVerifier> verifiers;
+
+        private Snapshot(Map<String, List<JWK>> keys, Map<String, PublicJWKS> publicJWKS,
+                Map<String, PooledSigner> signers, Map<String, PooledVerifier> verifiers) {
+            this.keys = keys;
+            this.publicJWKS = publicJWKS;
+            this.signers = signers;
+            this.verifiers = verifiers;
+        }
+    }
+
+    /**
+     * Constructor for KeyRegistry, loads the keys
+     * 
+     * @param jwkConfigs
+     *            per purpose the keys (by alias)
+     */
+    KeyRegistry(Map<String, Map<String, JWKConfig>> jwkConfigs) {
+        super();
+        this.jwkConfigs = jwkConfigs;
+        this.reloads = Metrics.getRegistry().timer("keys.reloads");
+        this.reloadFailures = Metrics.getRegistry().counter("keys.reloadFailures");
+        this.snapshot = load();
+    }
+
+    /**
+     * Returns the singleton object, loading the keys if that hasn't been done yet
+     * 
+     * @return see description
+     */
+    public static synchronized KeyRegistry getInstance() {
+        if (instance == null) {
+            instance = new KeyRegistry(OpSdkSpiImplConfiguration.getInstance().jwkConfigs);
+        }
+        return instance;
+    }
+
+    /**
+     * @param purpose
+     *            the type of keys, a key in {@link OpSdkSpiImplConfiguration#jwkConfigs}
+     * @return the keys for the purpose, a new set for every call since a JWKSet can be changed
+     * @throws IllegalArgumentException
+     *             if there are no keys for the purpose
+     */
+    public JWKSet getJWKSet(String purpose) {
+        List<JWK> keys = snapshot.keys.get(purpose);
+        if (keys == null) {
+            throw new IllegalArgumentException("No keys configured for " + purpose);
+        }
+        return new JWKSet(keys);
+    }
+
+    /**
+     * @return true if there is at least one key
+     */
+    public boolean hasKeys() {
+        return snapshot.keys.values().stream().anyMatch(keys -> !keys.isEmpty());
+    }
+
+    /**
+     * @param purpose
+     *            the type of keys, a key in {@link OpSdkSpiImplConfiguration#jwkConfigs}
+     * @return the public keys for the purpose, serialized, or null if there are no keys for the purpose
+     */
+    public PublicJWKS getPublicJWKS(String purpose) {
+        return snapshot.publicJWKS.get(purpose);
+    }
+
+    /**
+     * @param keyID
+     *            the kid of a private key that is used for signing
+     * @return a signer that can be used by any number of threads, or null if there's no such key
+     */
+    public PooledSigner getSigner(String keyID) {
+        return snapshot.signers.get(keyID);
+    }
+
+    /**
+     * @param keyID
+     *            the kid of a key that is used for signing
+     * @return a verifier that can be used by any number of threads, or null if there's no such key
+     */
+    public PooledVerifier getVerifier(String keyID) {
+        return snapshot.verifiers.get(keyID);
+    }
+
+    /**
+     * Loads the keys again and publishes them, unless they can't be loaded
+     * 
+     * @return true if the new keys were published
+     */
+    boolean reload() {
+        try (Timer.Context ignored = reloads.time()) {
+            snapshot = load();
+            LOGGER.info("Reloaded the keys");
+            return true;
+        } catch (RuntimeException e) {
+            reloadFailures.inc();
+            LOGGER.error("Could not reload the keys, keeping the ones that were loaded before", e);
+            return false;
+        }
+    }
+
+    private Snapshot load() {
+        Map<String, KeyStore> keyStores = new HashMap<>();
+        ImmutableMap.Builder<String, List<JWK>> keysByPurpose = ImmutableMap.builder();
+        ImmutableMap.Builder<String, PublicJWKS> publicJWKS = ImmutableMap.builder();
+        Map<String, PooledSigner> signers = new HashMap<>();
+        Map<String, PooledVerifier> verifiers = new HashMap<>();
+        for (Entry<String, Map<String, JWKConfig>> purpose : jwkConfigs.entrySet()) {
+            ImmutableList.Builder<JWK> keys = ImmutableList.builder();
+            for (Entry<String, JWKConfig> kv : purpose.getValue().entrySet()) {
+                JWKConfig config = kv.getValue();
+                String storeKey = getPath(config) + "|" + config.keystoreType;
+                KeyStore keyStore = keyStores.computeIfAbsent(storeKey, k -> JWKReader.loadKeyStore(config));
+                JWK jwk = new JWKReader(kv.getKey(), config, keyStore).getJWK();
+                keys.add(jwk);
+                if (!verifiers.containsKey(jwk.getKeyID())) {
+                    addSigner(jwk, signers, verifiers);
+                }
+            }
+            List<JWK> purposeKeys = keys.build();
+            keysByPurpose.put(purpose.getKey(), purposeKeys);
+            publicJWKS.put(purpose.getKey(), new PublicJWKS(new JWKSet(purposeKeys)));
+        }
+        return new Snapshot(keysByPurpose.build(), publicJWKS.build(), ImmutableMap.copyOf(signers),
+                ImmutableMap.copyOf(verifiers));
+    }
+
+    /**
+     * Creates the signer and verifier for a key, if it is a signing key
+     * 
+     * @param jwk
+     *            the key
+     * @param signers
+     *            by kid
+     * @param verifiers
+     *            by kid
+     */
+    private static void addSigner(JWK jwk, Map<String, PooledSigner> signers, Map<String, PooledVerifier> verifiers) {
+        if (!(jwk.getAlgorithm() instanceof JWSAlgorithm) || !(jwk instanceof AssymetricJWK)) {
+            // not for signing (the algorithm is only set for signing keys), or not a key pair
+            return;
+        }
+        JWSAlgorithm algorithm = (JWSAlgorithm) jwk.getAlgorithm();
+        AssymetricJWK keyPair = (AssymetricJWK) jwk;
+        try {
+            verifiers.put(jwk.getKeyID(), new PooledVerifier(jwk.getKeyID(), algorithm, keyPair.toPublicKey()));
+            if (jwk.isPrivate()) {
+                signers.put(jwk.getKeyID(), new PooledSigner(jwk.getKeyID(), algorithm, keyPair.toPrivateKey()));
+            }
+        } catch (GeneralSecurityException | JOSEException e) {
+            LOGGER.warn("Key {} can not be used to sign or verify with {}", jwk.getKeyID(), algorithm, e);
+        }
+    }
+
+    private static Path getPath(JWKConfig config) {
+        return Paths.get(config.keystoreFilename).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (watcher != null) {
+            return;
+        }
+        Set<Path> files = new HashSet<>();
+        jwkConfigs.values().forEach(byAlias -> byAlias.values().forEach(config -> files.add(getPath(config))));
+        if (files.isEmpty()) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        Set<Path> dirs = new HashSet<>();
+        for (Path file : files) {
+            if (dirs.add(file.getParent())) {
+                file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+        watcher = new Thread(() -> watch(watchService), "KeyRegistry-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOGGER.info("Watching {} for changes to the keys", files);
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                while (key != null) {
+                    changed |= hasEvents(key);
+                    key = service.poll(changed ? RELOAD_DELAY_IN_MILLIS : 0L, TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) { // NOSONAR, the flag is restored
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) { // NOSONAR, stopping
+            LOGGER.debug("Stopped watching the keys");
+        }
+    }
+
+    /**
+     * Any change in the directories counts, not only to the key store files themselves: these may be symbolic links
+     * whose target is swapped (e.g. ..data in a Kubernetes secret), which is an event for another name
+     */
+    private static boolean hasEvents(WatchKey key) {
+        boolean result = !key.pollEvents().isEmpty();
+        key.reset();
+        return result;
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (watcher == null) {
+            return;
+        }
+        watchService.close();
+        watcher.interrupt();
+        watcher = null;
+        watchService = null;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Collections;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSProvider;
+import com.nimbusds.jose.jca.JCAContext;
+
+/**
+ * Base for {@link PooledSigner} and {@link PooledVerifier}: one key and one algorithm, with a {@link SignaturePool} so
+ * the key is parsed once and the object can be used by any number of threads.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+abstract class PooledJWSProvider implements JWSProvider {
+    final SignaturePool pool;
+    private final String keyID;
+    private final JWSAlgorithm algorithm;
+    private final JCAContext jcaContext = new JCAContext();
+
+    /**
+     * Constructor for PooledJWSProvider
+     * 
+     * @param keyID
+     *            the kid of the key
+     * @param algorithm
+     *            the JWS algorithm
+     * @param key
+     *            a private key to sign or a public key to verify
+     * @throws GeneralSecurityException
+     *             if the algorithm isn't supported or doesn't go with the key
+     */
+    PooledJWSProvider(String keyID, JWSAlgorithm algorithm, Key key) throws GeneralSecurityException {
+        super();
+        this.keyID = keyID;
+        this.algorithm = algorithm;
+        this.pool = new SignaturePool(algorithm, key);
+    }
+
+    /**
+     * @return the kid of the key
+     */
+    public String getKeyID() {
+        return keyID;
+    }
+
+    /**
+     * @return the one algorithm that is supported
+     */
+    public JWSAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+        return Collections.singleton(algorithm);
+    }
+
+    @Override
+    public JCAContext getJCAContext() {
+        return jcaContext;
+    }
+
+    /**
+     * @return true if the JCA signatures must be converted from and to the JWS format
+     */
+    boolean isEcdsa() {
+        return JWSAlgorithm.Family.EC.contains(algorithm);
+    }
+
+    void checkAlgorithm(JWSHeader header) throws JOSEException {
+        if (!algorithm.equals(header.getAlgorithm())) {
+            throw new JOSEException("Key " + keyID + " is for " + algorithm + ", not " + header.getAlgorithm());
+        }
+    }
+}
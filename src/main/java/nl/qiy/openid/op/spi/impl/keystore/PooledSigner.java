@@ -0,0 +1,60 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * Signs with one private key, ready to be used by any number of threads, see {@link KeyRegistry#getSigner(String)}
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class PooledSigner extends PooledJWSProvider implements JWSSigner {
+
+    PooledSigner(String keyID, JWSAlgorithm algorithm, PrivateKey key) throws GeneralSecurityException {
+        super(keyID, algorithm, key);
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        checkAlgorithm(header);
+        try {
+            Signature signature = pool.borrow();
+            signature.update(signingInput);
+            byte[] result = signature.sign();
+            pool.release(signature);
+            if (isEcdsa()) {
+                result = EcdsaSignatures.toConcat(result, getAlgorithm());
+            }
+            return Base64URL.encode(result);
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Could not sign with " + getKeyID() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * Verifies with one public key, ready to be used by any number of threads, see
+ * {@link KeyRegistry#getVerifier(String)}
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class PooledVerifier extends PooledJWSProvider implements JWSVerifier {
+
+    PooledVerifier(String keyID, JWSAlgorithm algorithm, PublicKey key) throws GeneralSecurityException {
+        super(keyID, algorithm, key);
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signedContent, Base64URL signature) throws JOSEException {
+        checkAlgorithm(header);
+        byte[] bytes = signature.decode();
+        if (isEcdsa()) {
+            bytes = EcdsaSignatures.toDER(bytes, getAlgorithm());
+            if (bytes == null) {
+                return false;
+            }
+        }
+        try {
+            Signature verifier = pool.borrow();
+            verifier.update(signedContent);
+            boolean result = verifier.verify(bytes);
+            pool.release(verifier);
+            return result;
+        } catch (GeneralSecurityException e) { // NOSONAR, a signature that can't be parsed is not valid
+            return false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.core.EntityTag;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * The public part of a {@link JWKSet}, serialized once, so it can be served as is. The entity tag is derived from the
+ * serialized keys, so it only changes when the keys change.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class PublicJWKS {
+    private final byte[] json;
+    private final EntityTag entityTag;
+
+    /**
+     * Constructor for PublicJWKS
+     * 
+     * @param keys
+     *            the keys, may contain private keys, which are left out
+     */
+    PublicJWKS(JWKSet keys) {
+        super();
+        this.json = keys.toPublicJWKSet().toJSONObject(true).toJSONString().getBytes(StandardCharsets.UTF_8);
+        String hash = BaseEncoding.base64Url().omitPadding().encode(Hashing.sha256().hashBytes(json).asBytes());
+        this.entityTag = new EntityTag(hash);
+    }
+
+    /**
+     * @return the serialized keys (not a copy, so don't change it)
+     */
+    @SuppressWarnings("squid:S2384")
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * @return a strong entity tag for the serialized keys
+     */
+    public EntityTag getEntityTag() {
+        return entityTag;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+/**
+ * Publishes the public keys per purpose (a key in the jwkConfigs) as a JWK Set document. The documents are serialized
+ * by the {@link KeyRegistry} when the keys are loaded, so a request is answered with a copy of those bytes, or with
+ * 304 (Not Modified) when the client sends the entity tag it already has.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+@Path("keys")
+public class PublicKeysResource {
+    /**
+     * Key sets change rarely, but when they do relying parties should notice soon
+     */
+    private static final int MAX_AGE_IN_SECONDS = (int) TimeUnit.MINUTES.toSeconds(5);
+    private static final String JWK_SET_TYPE = "application/jwk-set+json";
+
+    @Path("{purpose}")
+    @GET
+    @Produces({ MediaType.APPLICATION_JSON, JWK_SET_TYPE })
+    public Response getKeys(@PathParam("purpose") String purpose, @Context Request request) {
+        PublicJWKS keys = KeyRegistry.getInstance().getPublicJWKS(purpose);
+        if (keys == null) {
+            throw new NotFoundException();
+        }
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(MAX_AGE_IN_SECONDS);
+        cacheControl.setNoTransform(true);
+        ResponseBuilder builder = request.evaluatePreconditions(keys.getEntityTag());
+        if (builder == null) {
+            builder = Response.ok(keys.getJson());
+        }
+        // @formatter:off
+        return builder
+                .tag(keys.getEntityTag())
+                .cacheControl(cacheControl)
+                .build(); // @formatter:on
+    }
+}
@@ -19,53 +19,55 @@
 
 package nl.qiy.openid.op.spi.impl.keystore;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 
+import nl.qiy.oic.op.qiy.HealthMonitor;
 import nl.qiy.oic.op.service.spi.SecretStore;
-import nl.qiy.openid.op.spi.impl.config.JWKConfig;
-import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
 
 /**
  * The demo implementation for a {@link SecretStore}, uses the Dropwizard configuration to store secrets, which may not
- * be the best of places
+ * be the best of places. The keys are read once and kept by the {@link KeyRegistry}
+ * <p>
+ * The signers and verifiers by kid are not part of the {@link SecretStore} SPI, which only hands out JWK sets, so the
+ * library's own signing and verifying can't use them; within this project the self-contained bearer tokens are signed
+ * and verified with them (see nl.qiy.openid.op.spi.impl.mem.SignedBearerCodec).
  *
  * @author Friso Vrolijken
  * @since 9 mei 2016
  */
 public class SecretStoreImpl implements SecretStore {
     /**
-     * Standard SLF4J Logger
+     * The outcome of {@link KeyRegistry#hasKeys()} in the last round of the {@link HealthMonitor}
      */
-    private static final Logger LOGGER = LoggerFactory.getLogger(SecretStoreImpl.class);
-
     @Override
     public boolean isHealthy() {
-        boolean result = true;
-        LOGGER.debug("{} isHealthy called: {}", this.getClass(), result);
-        return result;
+        return HealthMonitor.getInstance().isHealthy(HealthMonitor.KEYS);
     }
 
     @Override
     public JWKSet getJWKSet(String type) {
-        OpSdkSpiImplConfiguration config = OpSdkSpiImplConfiguration.getInstance();
-        Map<String, JWKConfig> jwkConfig = config.jwkConfigs.get(type);
-        List<JWK> result = new ArrayList<>();
-        for (Entry<String, JWKConfig> kv : jwkConfig.entrySet()) {
-            JWKReader reader = new JWKReader(kv.getKey(), kv.getValue());
-            result.add(reader.getJWK());
-        }
-        return new JWKSet(result);
+        return KeyRegistry.getInstance().getJWKSet(type);
     }
-}
-
 
+    /**
+     * Not part of the SPI, used for the self-contained bearer tokens
+     * 
+     * @param keyID
+     *            the kid of a private key that is used for signing
+     * @return a signer that can be used by any number of threads, or null if there's no such key
+     */
+    public PooledSigner getSigner(String keyID) {
+        return KeyRegistry.getInstance().getSigner(keyID);
+    }
 
+    /**
+     * Not part of the SPI, used for the self-contained bearer tokens
+     * 
+     * @param keyID
+     *            the kid of a key that is used for signing
+     * @return a verifier that can be used by any number of threads, or null if there's no such key
+     */
+    public PooledVerifier getVerifier(String keyID) {
+        return KeyRegistry.getInstance().getVerifier(keyID);
+    }
+}
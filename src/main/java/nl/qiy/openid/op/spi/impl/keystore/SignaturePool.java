@@ -0,0 +1,112 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+/**
+ * A pool of {@link Signature} objects for one key, initialised for either signing or verifying. A {@link Signature}
+ * is not thread-safe, but it can be reused once it has signed or verified, and initialising it (parsing the key) is
+ * the expensive part. So each thread borrows an initialised one and returns it when done.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class SignaturePool {
+    /**
+     * more idle instances than this are not kept, they will be garbage collected
+     */
+    private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final String jcaAlgorithm;
+    private final Key key;
+    private final Queue<Signature> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Constructor for SignaturePool, creates the first instance, so problems with the key or algorithm show early
+     * 
+     * @param algorithm
+     *            the JWS algorithm
+     * @param key
+     *            a {@link PrivateKey} to sign or a {@link PublicKey} to verify
+     * @throws GeneralSecurityException
+     *             if the algorithm isn't supported or doesn't go with the key
+     */
+    SignaturePool(JWSAlgorithm algorithm, Key key) throws GeneralSecurityException {
+        super();
+        this.jcaAlgorithm = JWKReader.getJcaAlgorithm(algorithm);
+        if (jcaAlgorithm == null) {
+            throw new NoSuchAlgorithmException("No JCA signature algorithm for " + algorithm);
+        }
+        this.key = key;
+        release(create());
+    }
+
+    private Signature create() throws GeneralSecurityException {
+        Signature result = Signature.getInstance(jcaAlgorithm);
+        if (key instanceof PrivateKey) {
+            result.initSign((PrivateKey) key);
+        } else if (key instanceof PublicKey) {
+            result.initVerify((PublicKey) key);
+        } else {
+            throw new InvalidKeyException("Not a private or public key: " + key.getAlgorithm());
+        }
+        return result;
+    }
+
+    /**
+     * @return an initialised instance that no one else uses, should be given back with {@link #release(Signature)}
+     *         when done, unless its use failed
+     * @throws GeneralSecurityException
+     *             if a new one could not be created
+     */
+    Signature borrow() throws GeneralSecurityException {
+        Signature result = idle.poll();
+        if (result == null) {
+            return create();
+        }
+        idleCount.decrementAndGet();
+        return result;
+    }
+
+    /**
+     * @param signature
+     *            a borrowed instance that has finished signing or verifying
+     */
+    void release(Signature signature) {
+        if (idleCount.incrementAndGet() <= MAX_IDLE) {
+            idle.offer(signature);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
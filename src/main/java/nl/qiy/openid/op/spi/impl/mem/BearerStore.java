@@ -0,0 +1,214 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.openid.op.spi.impl.config.BearerStoreConfig;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
+
+/**
+ * Stores the ID tokens by their bearer (access) token. The bearer token itself is not kept, only its SHA-256 hash, so
+ * every key has the same (small) size. The ID token is kept in a small binary form of its claims (see
+ * {@link #encode(IDToken)}), which is read back without JSON, and every entry expires when its ID token does (see
+ * {@link BearerStoreConfig#maxTtlInSeconds} for the upper bound).
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+class BearerStore {
+    private static final HashFunction SHA_256 = Hashing.sha256();
+    /**
+     * First byte of the encoded ID token, so the format can change
+     */
+    private static final byte VERSION = 1;
+
+    private final Cache<HashCode, Entry> cache;
+    private final long maxTtlMillis;
+    private final Clock clock;
+
+    /**
+     * The claims of an ID token plus the moment it expires
+     */
+    private static final class Entry {
+        private final byte[] claims;
+        private final long expiresAt;
+
+        private Entry(byte[] claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Constructor for BearerStore
+     * 
+     * @param config
+     *            the configuration
+     */
+    BearerStore(BearerStoreConfig config) {
+        this(config, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor for BearerStore with a clock, for testing
+     * 
+     * @param config
+     *            the configuration
+     * @param clock
+     *            used to determine if a token has expired
+     */
+    BearerStore(BearerStoreConfig config, Clock clock) {
+        super();
+        this.clock = clock;
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(config.maxTtlInSeconds.longValue());
+        // @formatter:off
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(config.maximumSize.longValue())
+                .expireAfterWrite(maxTtlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .removalListener(CacheMetrics.countingRemovals("bearers"))
+                .build(); // @formatter:on
+    }
+
+    /**
+     * Registers the size and statistics of this store with the metric registry, as cache "bearers"
+     */
+    void registerMetrics() {
+        // rough estimate: the hash, the encoded ID token and the entry
+        CacheMetrics.register("bearers", cache, 200L);
+    }
+
+    /**
+     * Stores the ID token
+     * 
+     * @param bearer
+     *            the bearer token
+     * @param idToken
+     *            the ID token
+     * @return the number of seconds the bearer token will be valid
+     */
+    long put(String bearer, IDToken idToken) {
+        long now = clock.millis();
+        long expiresAt = getExpiresAt(idToken, now);
+        if (expiresAt > now) {
+            cache.put(hash(bearer), new Entry(encode(idToken), expiresAt));
+        }
+        return Math.max(0L, TimeUnit.MILLISECONDS.toSeconds(expiresAt - now));
+    }
+
+    /**
+     * @param bearer
+     *            the bearer token
+     * @return the ID token or null if it is unknown or has expired
+     */
+    IDToken get(String bearer) {
+        HashCode key = hash(bearer);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            cache.invalidate(key);
+            return null;
+        }
+        return decode(entry.claims);
+    }
+
+    /**
+     * @param idToken
+     *            the ID token
+     * @param now
+     *            milliseconds since the epoch
+     * @return when a bearer token for the ID token expires (milliseconds since the epoch): at the exp of the ID token
+     *         but no later than the maximum TTL
+     */
+    long getExpiresAt(IDToken idToken, long now) {
+        long expiresAt = now + maxTtlMillis;
+        if (idToken.exp != null) {
+            expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(idToken.exp.longValue()));
+        }
+        return expiresAt;
+    }
+
+    private static HashCode hash(String bearer) {
+        return SHA_256.hashString(bearer, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param idToken
+     *            the ID token
+     * @return its claims (sub and exp) in a small binary form
+     */
+    static byte[] encode(IDToken idToken) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeByte(VERSION);
+            out.writeBoolean(idToken.sub != null);
+            if (idToken.sub != null) {
+                out.writeUTF(idToken.sub);
+            }
+            out.writeBoolean(idToken.exp != null);
+            if (idToken.exp != null) {
+                out.writeLong(idToken.exp.longValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @param encoded
+     *            as returned by {@link #encode(IDToken)}
+     * @return the ID token
+     * @throws IllegalArgumentException
+     *             if the bytes can't be read
+     */
+    static IDToken decode(byte[] encoded) {
+        IDToken result = new IDToken();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unknown version " + version);
+            }
+            result.sub = in.readBoolean() ? in.readUTF() : null;
+            result.exp = in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return result;
+    }
+}
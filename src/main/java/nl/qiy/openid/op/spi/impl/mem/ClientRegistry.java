@@ -0,0 +1,266 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.collect.ImmutableMap;
+
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.lifecycle.Managed;
+import nl.qiy.oic.op.domain.OAuthClient;
+import nl.qiy.openid.op.spi.impl.OAuthClientImpl;
+import nl.qiy.openid.op.spi.impl.config.ClientRegistryConfig;
+import nl.qiy.openid.op.spi.impl.config.OAuthClientConfig;
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+
+/**
+ * Holds the clients, from the configuration and (optionally) from the file or directory in
+ * {@link ClientRegistryConfig#path}. The clients are kept in an immutable {@link Snapshot} behind a volatile reference,
+ * so reading never locks. After {@link #start()} the file or directory is watched; on a change a new snapshot is built
+ * on the watching thread and published. If the new clients can't be loaded, the old snapshot stays.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class ClientRegistry implements Managed {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientRegistry.class);
+    /**
+     * how many origins that are not allowed are remembered per snapshot
+     */
+    private static final int ORIGIN_MISSES = 1024;
+    private static final ObjectMapper YAML_MAPPER = Jackson.newObjectMapper(new YAMLFactory());
+
+    private static ClientRegistry instance;
+
+    private final ClientRegistryConfig config;
+    private final List<OAuthClientConfig> configuredClients;
+    private volatile Snapshot snapshot;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * The clients at one moment in time
+     */
+    static final class Snapshot {
+        final Map<String, OAuthClient> clients;
+        final OriginIndex origins;
+
+        private Snapshot(Map<String, OAuthClient> clients, OriginIndex origins) {
+            this.clients = clients;
+            this.origins = origins;
+        }
+    }
+
+    /**
+     * Constructor for ClientRegistry
+     * 
+     * @param config
+     *            where to find more clients
+     * @param configuredClients
+     *            the clients from the configuration
+     */
+    ClientRegistry(ClientRegistryConfig config, List<OAuthClientConfig> configuredClients) {
+        super();
+        this.config = config;
+        this.configuredClients = configuredClients;
+        this.snapshot = load();
+    }
+
+    /**
+     * Returns the singleton object, loading the clients if that hasn't been done yet
+     * 
+     * @return see description
+     */
+    public static synchronized ClientRegistry getInstance() {
+        if (instance == null) {
+            OpSdkSpiImplConfiguration configuration = OpSdkSpiImplConfiguration.getInstance();
+            instance = new ClientRegistry(configuration.clientRegistryConfig, configuration.clientConfig);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the current clients, never locks
+     */
+    Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Loads the clients again and publishes them, unless they can't be loaded
+     * 
+     * @return true if the new clients were published
+     */
+    boolean reload() {
+        try {
+            snapshot = load();
+            LOGGER.info("Loaded {} clients", Integer.valueOf(snapshot.clients.size()));
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not load the clients, keeping the {} clients that were loaded before",
+                    Integer.valueOf(snapshot.clients.size()), e);
+            return false;
+        }
+    }
+
+    private Snapshot load() {
+        Map<String, OAuthClientConfig> byId = new LinkedHashMap<>();
+        if (configuredClients != null) {
+            configuredClients.forEach(conf -> byId.put(conf.id, conf));
+        }
+        if (config.path != null) {
+            readClients(Paths.get(config.path)).forEach(conf -> byId.put(conf.id, conf));
+        }
+        ImmutableMap.Builder<String, OAuthClient> clients = ImmutableMap.builder();
+        List<String> origins = new ArrayList<>();
+        for (OAuthClientConfig conf : byId.values()) {
+            OAuthClientImpl clientImpl = new OAuthClientImpl(conf);
+            clients.put(clientImpl.id, clientImpl);
+            if (clientImpl.origin != null) {
+                origins.addAll(clientImpl.origin);
+            }
+        }
+        return new Snapshot(clients.build(), new OriginIndex(origins, ORIGIN_MISSES));
+    }
+
+    /**
+     * @param path
+     *            a file or a directory
+     * @return the client definitions in the file, or the files in the directory (in order of their names)
+     */
+    private static List<OAuthClientConfig> readClients(Path path) {
+        List<OAuthClientConfig> result = new ArrayList<>();
+        try {
+            if (Files.isDirectory(path)) {
+                List<Path> files = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.{yml,yaml,json}")) {
+                    stream.forEach(files::add);
+                }
+                files.sort(null);
+                for (Path file : files) {
+                    readClients(file, result);
+                }
+            } else {
+                readClients(path, result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static void readClients(Path file, List<OAuthClientConfig> result) throws IOException {
+        JsonNode tree = YAML_MAPPER.readTree(file.toFile());
+        if (tree == null) {
+            return;
+        }
+        if (tree.isArray()) {
+            for (JsonNode node : tree) {
+                result.add(toClientConfig(node, file));
+            }
+        } else {
+            result.add(toClientConfig(tree, file));
+        }
+    }
+
+    private static OAuthClientConfig toClientConfig(JsonNode node, Path file) throws IOException {
+        OAuthClientConfig conf = YAML_MAPPER.treeToValue(node, OAuthClientConfig.class);
+        if (conf.id == null || conf.id.isEmpty()) {
+            throw new IllegalArgumentException("Client without id in " + file);
+        }
+        return conf;
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (config.path == null || watcher != null) {
+            return;
+        }
+        Path path = Paths.get(config.path).toAbsolutePath();
+        Path dir = Files.isDirectory(path) ? path : path.getParent();
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watcher = new Thread(() -> watch(watchService), "ClientRegistry-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOGGER.info("Watching {} for changes to the clients", dir);
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                // changes tend to come in bursts (editors, copying a directory), so wait for the rest of them
+                Thread.sleep(config.reloadDelayInMillis.longValue());
+                drain(service, key);
+                reload();
+            }
+        } catch (InterruptedException e) { // NOSONAR, the flag is restored
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) { // NOSONAR, stopping
+            LOGGER.debug("Stopped watching the clients");
+        }
+    }
+
+    private static void drain(WatchService service, WatchKey first) throws InterruptedException {
+        WatchKey key = first;
+        while (key != null) {
+            key.pollEvents();
+            key.reset();
+            key = service.poll(0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        if (watcher == null) {
+            return;
+        }
+        watchService.close();
+        watcher.interrupt();
+        watcher = null;
+        watchService = null;
+    }
+}
@@ -19,18 +19,9 @@
 
 package nl.qiy.openid.op.spi.impl.mem;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import nl.qiy.oic.op.domain.OAuthClient;
+import nl.qiy.oic.op.qiy.HealthMonitor;
 import nl.qiy.oic.op.service.spi.ClientStore;
-import nl.qiy.openid.op.spi.impl.OAuthClientImpl;
-import nl.qiy.openid.op.spi.impl.config.OAuthClientConfig;
-import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
 
 /**
  * Demo implementation for {@link ClientStore}
@@ -39,42 +30,37 @@ import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
  * @since 9 mei 2016
  */
 public class ClientStoreImpl implements ClientStore {
-    /** 
-     * Standard SLF4J Logger 
-     */
-    private static final Logger LOGGER = LoggerFactory.getLogger(ClientStoreImpl.class);
-
-    private Map<String, OAuthClient> clientMap = new HashMap<>();
-    private Map<String, Boolean> originMap = new HashMap<>();
+    private final ClientRegistry registry;
 
     public ClientStoreImpl() {
         super();
-        List<OAuthClientConfig> list = OpSdkSpiImplConfiguration.getInstance().clientConfig;
-        for (OAuthClientConfig conf : list) {
-            OAuthClientImpl clientImpl = new OAuthClientImpl(conf);
-            clientMap.put(clientImpl.id, clientImpl);
-            for (String o : clientImpl.origin) {
-                originMap.put(o, Boolean.TRUE);
-            }
-        }
-
+        registry = ClientRegistry.getInstance();
     }
 
     @Override
     public OAuthClient getById(String clientId) {
-        return clientMap.get(clientId);
+        return registry.getSnapshot().clients.get(clientId);
     }
 
+    /**
+     * The outcome of {@link #hasClients()} in the last round of the {@link HealthMonitor}
+     */
     @Override
     public boolean isHealthy() {
-        boolean result = clientMap != null && !clientMap.isEmpty();
-        LOGGER.debug("{} isHealthy called: {}", this.getClass(), result);
-        return result;
+        return HealthMonitor.getInstance().isHealthy(HealthMonitor.CLIENTS);
+    }
+
+    /**
+     * @return true if any clients have been loaded, run by the {@link HealthMonitor}
+     */
+    public static boolean hasClients() {
+        return !ClientRegistry.getInstance().getSnapshot().clients.isEmpty();
     }
 
     @Override
     public Boolean existstOrigin(String origin) {
-        return originMap.get(origin);
+        // null rather than false, as before
+        return registry.getSnapshot().origins.contains(origin) ? Boolean.TRUE : null;
     }
 
 }
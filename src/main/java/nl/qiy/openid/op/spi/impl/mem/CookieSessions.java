@@ -0,0 +1,278 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWEEncrypter;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+
+import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.config.SessionCookieConfig;
+import nl.qiy.openid.op.spi.impl.metrics.CacheMetrics;
+
+/**
+ * Keeps the logged in user in a cookie instead of in the HTTP session. The cookie holds a {@link LoggedInUser} and its
+ * expiry time, encrypted with AES-GCM (which authenticates it as well) as a compact JWE.
+ * <p>
+ * The login is done while the node calls us, not while the browser does, so the cookie can't be set right away. It is
+ * kept here (by session id, for a short while) and set on the next request of the browser by the
+ * {@link SessionCookieFilter}. Whenever the cookie is set, its value is also kept as an attribute of the request, so
+ * the rest of that request sees the new login (or logout) although the browser hasn't sent the cookie yet.
+ * <p>
+ * This hand-off is kept in memory, so until the cookie has been delivered the browser still needs its HTTP session
+ * (for the id) and has to reach the instance that handled the node's call (sticky sessions). After that any instance
+ * with the same {@link SessionCookieConfig#secret} can read the cookie, without the HTTP session.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class CookieSessions {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CookieSessions.class);
+    /**
+     * Browsers don't accept (much) larger cookies
+     */
+    private static final int MAX_COOKIE_LENGTH = 4096;
+    private static final JWEHeader HEADER = new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM);
+    /**
+     * Request attribute with the value of the cookie that was set during the request
+     */
+    private static final String COOKIE_VALUE = CookieSessions.class.getName() + ".cookieValue";
+
+    private static CookieSessions instance;
+
+    private final SessionCookieConfig config;
+    private final JWEEncrypter encrypter;
+    private final JWEDecrypter decrypter;
+    /**
+     * Cookie values that still have to be sent to the browser, by session id. An empty value deletes the cookie
+     */
+    private final Cache<String, String> pending = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .recordStats()
+            .removalListener(CacheMetrics.countingRemovals("pendingCookies"))
+            .build();
+
+    /**
+     * Constructor for CookieSessions, see {@link #getInstance()}
+     * 
+     * @param config
+     *            the configuration
+     */
+    CookieSessions(SessionCookieConfig config) {
+        super();
+        this.config = config;
+        // rough estimate: the session id and the cookie value
+        CacheMetrics.register("pendingCookies", pending, 400L);
+        byte[] key;
+        if (config.secret == null) {
+            LOGGER.warn("No secret for the session cookies, other instances will not accept this instance's cookies");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(config.secret);
+        }
+        SecretKey secretKey = new SecretKeySpec(key, "AES");
+        try {
+            this.encrypter = new DirectEncrypter(secretKey);
+            this.decrypter = new DirectDecrypter(secretKey);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Invalid secret for the session cookies", e);
+        }
+    }
+
+    /**
+     * @return the singleton, created from the configuration
+     */
+    static synchronized CookieSessions getInstance() {
+        if (instance == null) {
+            instance = new CookieSessions(OpSdkSpiImplConfiguration.getInstance().sessionCookieConfig);
+        }
+        return instance;
+    }
+
+    /**
+     * @param session
+     *            the HTTP session, only its id is used
+     * @return the user that has logged in, or null
+     */
+    LoggedInUser getLoggedIn(HttpSession session) {
+        HttpServletRequest request = SessionCookieFilter.getRequest();
+        String value = request == null ? null : (String) request.getAttribute(COOKIE_VALUE);
+        if (value == null) {
+            value = pending.getIfPresent(session.getId());
+        }
+        if (value == null) {
+            value = readCookie(request);
+        }
+        return value == null || value.isEmpty() ? null : decode(value);
+    }
+
+    /**
+     * Stores the user in the cookie, right away if this is the browser's request, else on its next request
+     * 
+     * @param session
+     *            the HTTP session, only its id is used
+     * @param user
+     *            the user that has logged in
+     */
+    void store(HttpSession session, LoggedInUser user) {
+        String value = encode(user);
+        if (value.length() > MAX_COOKIE_LENGTH) {
+            throw new IllegalStateException("Session cookie would be too large: " + value.length());
+        }
+        send(session, value);
+    }
+
+    /**
+     * Removes the cookie
+     * 
+     * @param session
+     *            the HTTP session, only its id is used
+     */
+    void clear(HttpSession session) {
+        send(session, "");
+    }
+
+    private void send(HttpSession session, String value) {
+        HttpServletRequest request = SessionCookieFilter.getRequest();
+        HttpServletResponse response = SessionCookieFilter.getResponse();
+        HttpSession requestSession = request == null ? null : request.getSession(false);
+        if (requestSession != null && requestSession.getId().equals(session.getId()) && !response.isCommitted()) {
+            pending.invalidate(session.getId());
+            setCookie(request, response, value);
+        } else {
+            pending.put(session.getId(), value);
+        }
+    }
+
+    /**
+     * Sets the cookie if one is waiting for the session of the request, called by the {@link SessionCookieFilter}
+     * 
+     * @param request
+     *            the browser's request
+     * @param response
+     *            the response to it
+     */
+    void deliverPending(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return;
+        }
+        String value = pending.getIfPresent(session.getId());
+        if (value != null) {
+            pending.invalidate(session.getId());
+            setCookie(request, response, value);
+        }
+    }
+
+    private void setCookie(HttpServletRequest request, HttpServletResponse response, String value) {
+        request.setAttribute(COOKIE_VALUE, value);
+        response.addCookie(createCookie(value));
+    }
+
+    private Cookie createCookie(String value) {
+        Cookie cookie = new Cookie(config.name, value);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(config.secure.booleanValue());
+        cookie.setPath(config.path);
+        cookie.setMaxAge(value.isEmpty() ? 0 : config.maxAgeInSeconds.intValue());
+        return cookie;
+    }
+
+    private String readCookie(HttpServletRequest request) {
+        if (request == null || request.getCookies() == null) {
+            return null;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (config.name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String encode(LoggedInUser user) {
+        byte[] userBytes = user.toBytes();
+        long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.maxAgeInSeconds.longValue());
+        byte[] plain = ByteBuffer.allocate(Long.BYTES + userBytes.length).putLong(expiresAt).put(userBytes).array();
+        JWEObject jwe = new JWEObject(HEADER, new Payload(plain));
+        try {
+            jwe.encrypt(encrypter);
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwe.serialize();
+    }
+
+    /**
+     * @return the user or null if the value is not a valid cookie or has expired
+     */
+    private LoggedInUser decode(String value) {
+        if (value.length() > MAX_COOKIE_LENGTH) {
+            LOGGER.info("Ignoring session cookie of {} characters", value.length());
+            return null;
+        }
+        try {
+            JWEObject jwe = JWEObject.parse(value);
+            jwe.decrypt(decrypter);
+            ByteBuffer plain = ByteBuffer.wrap(jwe.getPayload().toBytes());
+            if (plain.getLong() <= System.currentTimeMillis()) {
+                LOGGER.debug("Session cookie has expired");
+                return null;
+            }
+            byte[] userBytes = new byte[plain.remaining()];
+            plain.get(userBytes);
+            return LoggedInUser.fromBytes(userBytes);
+        } catch (ParseException | JOSEException | IllegalArgumentException | BufferUnderflowException e) {
+            LOGGER.info("Ignoring invalid session cookie", e);
+            return null;
+        }
+    }
+}
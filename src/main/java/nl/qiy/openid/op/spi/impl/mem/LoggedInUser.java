@@ -0,0 +1,149 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Instant;
+
+import nl.qiy.oic.op.qiy.QiyOAuthUser;
+
+/**
+ * What is kept in the session for a logged in user: the subject, the connection and the login time. Much smaller than
+ * the {@link QiyOAuthUser} itself, which holds the whole callback (including the original request), and written by
+ * hand instead of by default serialization.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class LoggedInUser implements Externalizable {
+    /**
+     * First byte of the serialized form, so the format can change
+     */
+    private static final byte VERSION = 1;
+
+    private String subject;
+    private URI connectionUri;
+    private long loginTime;
+
+    /**
+     * Constructor for deserialization only
+     */
+    public LoggedInUser() {
+        super();
+    }
+
+    /**
+     * Constructor for LoggedInUser
+     * 
+     * @param user
+     *            the user that has logged in
+     */
+    LoggedInUser(QiyOAuthUser user) {
+        super();
+        this.subject = user.getSubject();
+        this.connectionUri = user.getConnectionUri();
+        this.loginTime = user.getLoginTime().toEpochMilli();
+    }
+
+    /**
+     * @return the subject (pid) of the user
+     */
+    String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return the user, without the callback's body
+     */
+    QiyOAuthUser toUser() {
+        return new QiyOAuthUser(subject, connectionUri, Instant.ofEpochMilli(loginTime));
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        write(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        read(in);
+    }
+
+    /**
+     * @return the same bytes as {@link #writeExternal(ObjectOutput)} writes, without the serialization header
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @param bytes
+     *            as returned by {@link #toBytes()}
+     * @return the user
+     * @throws IllegalArgumentException
+     *             if the bytes can't be read
+     */
+    static LoggedInUser fromBytes(byte[] bytes) {
+        LoggedInUser result = new LoggedInUser();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            result.read(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return result;
+    }
+
+    /**
+     * The one layout for both Java serialization and {@link #toBytes()}
+     */
+    private void write(DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeUTF(subject);
+        out.writeUTF(connectionUri.toString());
+        out.writeLong(loginTime);
+    }
+
+    private void read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown version " + version);
+        }
+        subject = in.readUTF();
+        connectionUri = URI.create(in.readUTF());
+        loginTime = in.readLong();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Index of the origins that may call us (CORS). The origins are normalised when the index is built (lower case scheme
+ * and host, no default port, no trailing slash) and stored in a trie of host labels, read from right to left, so a
+ * lookup takes time proportional to the number of labels in the host. An origin like {@code https://*.example.com}
+ * allows all subdomains of example.com (at any depth), but not example.com itself.
+ * <p>
+ * Origins that are not allowed are remembered in a small cache, so random or hostile origins don't have to be parsed
+ * over and over again.
+ * <p>
+ * Instances are immutable (except for the cache) and can be shared between threads.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class OriginIndex {
+    private static final String WILDCARD = "*";
+
+    /**
+     * per scheme and port (e.g. "https:443") the root of the host trie
+     */
+    private final Map<String, Node> roots = new HashMap<>();
+    private final Cache<String, Boolean> misses;
+    private int size;
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>(2);
+        private boolean exact;
+        private boolean wildcard;
+
+        private Node child(String label) {
+            return children.computeIfAbsent(label, k -> new Node());
+        }
+    }
+
+    /**
+     * The normalised parts of an origin
+     */
+    private static final class Origin {
+        private final String root;
+        private final String[] labels;
+
+        private Origin(String root, String[] labels) {
+            this.root = root;
+            this.labels = labels;
+        }
+    }
+
+    /**
+     * Constructor for OriginIndex
+     * 
+     * @param origins
+     *            the allowed origins, may contain wildcards
+     * @param negativeCacheSize
+     *            how many origins that are not allowed to remember
+     * @throws IllegalArgumentException
+     *             if one of the origins is not a valid origin
+     */
+    OriginIndex(Collection<String> origins, int negativeCacheSize) {
+        super();
+        for (String origin : origins) {
+            add(origin);
+        }
+        this.misses = CacheBuilder.newBuilder().maximumSize(negativeCacheSize).build();
+    }
+
+    private void add(String origin) {
+        Origin parsed = parse(origin, true);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Not a valid origin: " + origin);
+        }
+        Node node = roots.computeIfAbsent(parsed.root, k -> new Node());
+        String[] labels = parsed.labels;
+        for (int i = labels.length - 1; i > 0; i--) {
+            node = node.child(labels[i]);
+        }
+        if (WILDCARD.equals(labels[0])) {
+            node.wildcard = true;
+        } else {
+            node.child(labels[0]).exact = true;
+        }
+        size++;
+    }
+
+    /**
+     * @param origin
+     *            the value of an Origin header
+     * @return true if this origin is allowed
+     */
+    boolean contains(String origin) {
+        if (origin == null || misses.getIfPresent(origin) != null) {
+            return false;
+        }
+        boolean result = lookup(parse(origin, false));
+        if (!result) {
+            misses.put(origin, Boolean.FALSE);
+        }
+        return result;
+    }
+
+    private boolean lookup(Origin parsed) {
+        if (parsed == null) {
+            return false;
+        }
+        Node node = roots.get(parsed.root);
+        for (int i = parsed.labels.length - 1; node != null && i >= 0; i--) {
+            if (node.wildcard) {
+                return true;
+            }
+            node = node.children.get(parsed.labels[i]);
+        }
+        return node != null && node.exact;
+    }
+
+    /**
+     * @return the number of origins in this index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Parses an origin (scheme://host[:port], optionally followed by a slash).
+     * 
+     * @param origin
+     *            the origin
+     * @param allowWildcard
+     *            whether the first label of the host may be *
+     * @return the normalised origin or null if it is not a valid origin
+     */
+    private static Origin parse(String origin, boolean allowWildcard) {
+        int schemeEnd = origin.indexOf("://");
+        if (schemeEnd <= 0) {
+            return null;
+        }
+        String scheme = origin.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        String authority = origin.substring(schemeEnd + 3);
+        if (authority.endsWith("/")) {
+            authority = authority.substring(0, authority.length() - 1);
+        }
+        if (authority.isEmpty() || authority.indexOf('/') >= 0 || authority.indexOf('@') >= 0) {
+            return null;
+        }
+        String host = authority;
+        String port = defaultPort(scheme);
+        int colon = authority.lastIndexOf(':');
+        if (colon >= 0 && colon > authority.lastIndexOf(']')) {
+            host = authority.substring(0, colon);
+            port = authority.substring(colon + 1);
+            if (port.isEmpty() || port.length() > 5 || !port.chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            port = Integer.toString(Integer.parseInt(port));
+        }
+        if (port == null || host.isEmpty()) {
+            return null;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        // an IPv6 address is a single label
+        String[] labels = host.startsWith("[") ? new String[] { host } : host.split("\\.", -1);
+        for (int i = 0; i < labels.length; i++) {
+            boolean wildcard = i == 0 && allowWildcard && labels.length > 1 && WILDCARD.equals(labels[i]);
+            if (labels[i].isEmpty() || (!wildcard && labels[i].contains(WILDCARD))) {
+                return null;
+            }
+        }
+        return new Origin(scheme + ':' + port, labels);
+    }
+
+    private static String defaultPort(String scheme) {
+        switch (scheme) {
+        case "https":
+            return "443";
+        case "http":
+            return "80";
+        default:
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Makes the current request and response available to the {@link CookieSessions}, which need them to read and write
+ * the session cookie while the {@link UserSessionManagerImpl} only gets the HTTP session. Should be registered for all
+ * paths when {@link nl.qiy.openid.op.spi.impl.config.SessionCookieConfig#enabled} is set.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public class SessionCookieFilter implements Filter {
+    private static final ThreadLocal<HttpServletRequest> REQUEST = new ThreadLocal<>();
+    private static final ThreadLocal<HttpServletResponse> RESPONSE = new ThreadLocal<>();
+
+    private final CookieSessions sessions;
+
+    /**
+     * Default constructor for SessionCookieFilter, uses the configured {@link CookieSessions}
+     */
+    public SessionCookieFilter() {
+        this(null);
+    }
+
+    /**
+     * Constructor for SessionCookieFilter
+     * 
+     * @param sessions
+     *            the cookie sessions to use, null for the configured ones
+     */
+    SessionCookieFilter(CookieSessions sessions) {
+        super();
+        this.sessions = sessions;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // nothing to initialise
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        REQUEST.set(httpRequest);
+        RESPONSE.set(httpResponse);
+        try {
+            (sessions == null ? CookieSessions.getInstance() : sessions).deliverPending(httpRequest, httpResponse);
+            chain.doFilter(request, response);
+        } finally {
+            REQUEST.remove();
+            RESPONSE.remove();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to clean up
+    }
+
+    /**
+     * @return the request that is being handled by this thread, null if none (e.g. a call from the node)
+     */
+    static HttpServletRequest getRequest() {
+        return REQUEST.get();
+    }
+
+    /**
+     * @return the response for the request that is being handled by this thread, null if none
+     */
+    static HttpServletResponse getResponse() {
+        return RESPONSE.get();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSADecrypter;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.openid.op.spi.impl.keystore.KeyRegistry;
+import nl.qiy.openid.op.spi.impl.keystore.PooledSigner;
+import nl.qiy.openid.op.spi.impl.keystore.PooledVerifier;
+import nl.qiy.openid.op.spi.impl.keystore.SecretStoreImpl;
+import nl.qiy.openid.op.spi.impl.metrics.Metrics;
+
+/**
+ * Creates and reads self-contained bearer tokens: a signed JWT that carries the (encoded) ID token, optionally
+ * encrypted to our own RSA key. Reading such a token is a signature check (and a decryption), nothing is stored. The
+ * tokens have their own type ({@value #TYPE}), so a signed ID token is not accepted as a bearer token even if it was
+ * signed with the same key.
+ * <p>
+ * The keys are looked up for every token, through the {@link SecretStoreImpl} and so the {@link KeyRegistry}: new
+ * tokens are signed with the current key and a token is verified with the key its kid names, as long as that key is
+ * one of the keys for the purpose. When the keys are reloaded, tokens follow without a restart. Tokens that are
+ * refused are logged at debug level (anyone can send them) and counted in the meter
+ * nl.qiy.openid.op.spi.impl.mem.SignedBearerCodec.rejected.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class SignedBearerCodec {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SignedBearerCodec.class);
+    private static final String ID_TOKEN_CLAIM = "idt";
+    /**
+     * The typ header of the tokens, see RFC 9068
+     */
+    static final String TYPE = "at+jwt";
+    private static final JOSEObjectType JOSE_TYPE = new JOSEObjectType(TYPE);
+
+    private final String issuer;
+    private final String keyPurpose;
+    private final SecretStoreImpl secretStore;
+    private final boolean encrypt;
+    private final Meter rejected;
+
+    /**
+     * Constructor for SignedBearerCodec
+     * 
+     * @param issuer
+     *            our iss, tokens of other issuers are not accepted
+     * @param keyPurpose
+     *            the purpose of the keys, the first RSA or EC key with a private part is used
+     * @param secretStore
+     *            where the keys, signers and verifiers are looked up
+     * @param encrypt
+     *            if true, the tokens are encrypted as well, which needs an RSA key
+     * @throws IllegalStateException
+     *             if there is no suitable key
+     */
+    SignedBearerCodec(String issuer, String keyPurpose, SecretStoreImpl secretStore, boolean encrypt) {
+        super();
+        this.issuer = issuer;
+        this.keyPurpose = keyPurpose;
+        this.secretStore = secretStore;
+        this.encrypt = encrypt;
+        this.rejected = Metrics.getRegistry().meter(MetricRegistry.name(SignedBearerCodec.class, "rejected"));
+        // fail early if the configuration can't work
+        getSigner(getSigningKey(secretStore.getJWKSet(keyPurpose)));
+    }
+
+    /**
+     * @param keys
+     *            the keys for the purpose
+     * @return the key new tokens are signed (and encrypted) with
+     * @throws IllegalStateException
+     *             if there is no suitable key
+     */
+    private JWK getSigningKey(JWKSet keys) {
+        JWK key = keys.getKeys().stream()
+                .filter(k -> k.isPrivate() && (k instanceof RSAKey || k instanceof ECKey))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No private RSA or EC key for the bearer tokens"));
+        if (encrypt && !(key instanceof RSAKey)) {
+            throw new IllegalStateException("Encrypted bearer tokens need an RSA key");
+        }
+        return key;
+    }
+
+    /**
+     * @param key
+     *            see {@link #getSigningKey(JWKSet)}
+     * @return the signer for the key
+     * @throws IllegalStateException
+     *             if the key can't be used to sign (it has no alg)
+     */
+    private PooledSigner getSigner(JWK key) {
+        PooledSigner signer = secretStore.getSigner(key.getKeyID());
+        if (signer == null) {
+            throw new IllegalStateException("Key " + key.getKeyID() + " can not be used to sign the bearer tokens");
+        }
+        return signer;
+    }
+
+    /**
+     * @param token
+     *            a bearer token
+     * @return true if the token has the form of a JWS (3 parts) or JWE (5 parts), random tokens don't contain dots
+     */
+    static boolean isSelfContained(String token) {
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                dots++;
+            }
+        }
+        return dots == 2 || dots == 4;
+    }
+
+    /**
+     * Creates a bearer token for the ID token
+     * 
+     * @param idToken
+     *            what the token should carry
+     * @param expiresAt
+     *            milliseconds since the epoch
+     * @return the compact serialization of the token
+     */
+    String issue(IDToken idToken, long expiresAt) {
+        byte[] serialized = BearerStore.encode(idToken);
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(serialized);
+        // @formatter:off
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .expirationTime(new Date(expiresAt))
+                .claim(ID_TOKEN_CLAIM, encoded)
+                .build(); // @formatter:on
+        JWK key = getSigningKey(secretStore.getJWKSet(keyPurpose));
+        PooledSigner signer = getSigner(key);
+        JWSHeader jwsHeader = new JWSHeader.Builder(signer.getAlgorithm()).type(JOSE_TYPE).keyID(key.getKeyID())
+                .build();
+        SignedJWT jwt = new SignedJWT(jwsHeader, claims);
+        try {
+            jwt.sign(signer);
+            if (!encrypt) {
+                return jwt.serialize();
+            }
+            JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.RSA_OAEP_256, EncryptionMethod.A256GCM)
+                    .keyID(key.getKeyID())
+                    .contentType("JWT")
+                    .build();
+            JWEObject jwe = new JWEObject(header, new Payload(jwt));
+            jwe.encrypt(new RSAEncrypter((RSAKey) key));
+            return jwe.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Verifies the token and returns the ID token it carries
+     * 
+     * @param token
+     *            the bearer token
+     * @param now
+     *            milliseconds since the epoch
+     * @return the ID token or null if the token is invalid (not of our type, unknown key, bad signature, another
+     *         issuer, no ID token) or has expired
+     */
+    IDToken read(String token, long now) {
+        try {
+            JWKSet keys = secretStore.getJWKSet(keyPurpose);
+            SignedJWT jwt;
+            if (encrypt) {
+                JWEObject jwe = JWEObject.parse(token);
+                JWK key = getKey(keys, jwe.getHeader().getKeyID());
+                if (!(key instanceof RSAKey) || !key.isPrivate()) {
+                    return reject("Bearer token encrypted for an unknown key");
+                }
+                jwe.decrypt(new RSADecrypter((RSAKey) key));
+                jwt = jwe.getPayload().toSignedJWT();
+            } else {
+                jwt = SignedJWT.parse(token);
+            }
+            if (jwt == null || !JOSE_TYPE.equals(jwt.getHeader().getType())) {
+                return reject("Bearer token that is not of type " + TYPE);
+            }
+            String keyID = jwt.getHeader().getKeyID();
+            PooledVerifier verifier = getKey(keys, keyID) == null ? null : secretStore.getVerifier(keyID);
+            if (verifier == null) {
+                return reject("Bearer token signed with an unknown key");
+            }
+            if (!verifier.getAlgorithm().equals(jwt.getHeader().getAlgorithm()) || !jwt.verify(verifier)) {
+                return reject("Bearer token with an invalid signature");
+            }
+            JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            Date exp = claims.getExpirationTime();
+            if (!issuer.equals(claims.getIssuer()) || exp == null || exp.getTime() <= now) {
+                return reject("Bearer token of another issuer or expired");
+            }
+            String encoded = claims.getStringClaim(ID_TOKEN_CLAIM);
+            if (encoded == null) {
+                return reject("Bearer token without an ID token");
+            }
+            return BearerStore.decode(Base64.getUrlDecoder().decode(encoded));
+        } catch (ParseException | JOSEException | IllegalArgumentException e) {
+            rejected.mark();
+            LOGGER.debug("Could not read bearer token", e);
+            return null;
+        }
+    }
+
+    private static JWK getKey(JWKSet keys, String keyID) {
+        return keyID == null ? null : keys.getKeyByKeyId(keyID);
+    }
+
+    private IDToken reject(String reason) {
+        rejected.mark();
+        LOGGER.debug(reason);
+        return null;
+    }
+}
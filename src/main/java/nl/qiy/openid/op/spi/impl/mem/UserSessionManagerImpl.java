@@ -18,22 +18,21 @@
  */
 package nl.qiy.openid.op.spi.impl.mem;
 
-import java.util.concurrent.TimeUnit;
-
 import javax.servlet.http.HttpSession;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 
 import nl.qiy.oic.op.domain.IDToken;
 import nl.qiy.oic.op.domain.OAuthUser;
+import nl.qiy.oic.op.qiy.HealthMonitor;
 import nl.qiy.oic.op.qiy.QiyOAuthUser;
 import nl.qiy.oic.op.service.spi.UserSessionManager;
+import nl.qiy.openid.op.spi.impl.config.BearerStoreConfig;
 import nl.qiy.openid.op.spi.impl.config.OpSdkSpiImplConfiguration;
+import nl.qiy.openid.op.spi.impl.keystore.SecretStoreImpl;
 
 /**
  * TODO: friso should have written a comment here to tell us what this class does
@@ -47,16 +46,35 @@ public class UserSessionManagerImpl implements UserSessionManager {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(UserSessionManagerImpl.class);
     private static final String LOGGED_IN_USER = "nl.qiy.idp.LOGGED_IN_USER";
-    private static final Long BEARER_EXPIRY_SECONDS = Long.valueOf(900L);
-    private static final Cache<String, IDToken> BEARER_CACHE = CacheBuilder.newBuilder()
-            .expireAfterWrite(BEARER_EXPIRY_SECONDS, TimeUnit.SECONDS).build();
 
     private Boolean skipSessionStorage;
 
+    /**
+     * The outcome of {@link #canStoreSessions()} in the last round of the {@link HealthMonitor}
+     */
     @Override
     public boolean isHealthy() {
-        LOGGER.debug("{} isHealthy called: {}", this.getClass(), true);
-        return true;
+        return HealthMonitor.getInstance().isHealthy(HealthMonitor.SESSIONS);
+    }
+
+    /**
+     * Run by the {@link HealthMonitor}
+     * 
+     * @return true if what is configured for the sessions and bearer tokens can be created: the bearer store, the
+     *         codec for self-contained bearer tokens and the cookie sessions
+     */
+    public static boolean canStoreSessions() {
+        try {
+            getBearerStore();
+            getBearerCodec();
+            if (isCookieSessions()) {
+                CookieSessions.getInstance();
+            }
+            return true;
+        } catch (RuntimeException | LinkageError e) { // NOSONAR, a holder that failed to initialise
+            LOGGER.debug("Can't store sessions", e);
+            return false;
+        }
     }
 
     private boolean isSkipSessionStorage() {
@@ -69,15 +87,23 @@ public class UserSessionManagerImpl implements UserSessionManager {
 
 
 
+    /**
+     * @return true if the logged in user is kept in a cookie, see {@link CookieSessions}
+     */
+    private static boolean isCookieSessions() {
+        return OpSdkSpiImplConfiguration.getInstance().sessionCookieConfig.enabled.booleanValue();
+    }
+
     @Override
     public OAuthUser getLoggedIn(HttpSession session) {
-        if (isSkipSessionStorage()) {
+        if (!isCookieSessions() && isSkipSessionStorage()) {
             // short circuit
             LOGGER.debug("Skipping session lookup since we're configured that way");
             return null;
         }
 
-        QiyOAuthUser result = (QiyOAuthUser) session.getAttribute(LOGGED_IN_USER);
+        LoggedInUser stored = getStoredUser(session);
+        QiyOAuthUser result = stored == null ? null : stored.toUser();
         // DILEMMA: Dappre doesn't delete the underlying connection when the user deletes the organisation's card. So
         // we'd have to fetch the card to know if the connection has been deleted. But we haven't got consent to fetch
         // the user's card (which is personal data). So for the time being assume the user will remain logged in for the
@@ -87,6 +113,9 @@ public class UserSessionManagerImpl implements UserSessionManager {
 
     @Override
     public void logout(HttpSession session) {
+        if (isCookieSessions()) {
+            CookieSessions.getInstance().clear(session);
+        }
         session.removeAttribute(LOGGED_IN_USER);
         session.invalidate();
     }
@@ -106,30 +135,130 @@ public class UserSessionManagerImpl implements UserSessionManager {
 
         QiyOAuthUser userImpl;
 
-        if (isSkipSessionStorage()) {
+        if (!isCookieSessions() && isSkipSessionStorage()) {
             LOGGER.debug("Skipping session storage since we're configured that way");
             userImpl = new QiyOAuthUser(input);
         } else {
-            userImpl = (QiyOAuthUser) session.getAttribute(LOGGED_IN_USER);
-            boolean newLogin = userImpl == null || !input.getSubject().equals(userImpl.getSubject());
+            LoggedInUser stored = getStoredUser(session);
+            boolean newLogin = stored == null || !input.getSubject().equals(stored.getSubject());
             if (newLogin) {
                 userImpl = new QiyOAuthUser(input);
-                session.setAttribute(LOGGED_IN_USER, new QiyOAuthUser(input));
                 userImpl.resetLoginTime();
+                storeUser(session, new LoggedInUser(userImpl));
+            } else {
+                userImpl = stored.toUser();
             }
         }
         LOGGER.debug("User {} is logged in", userImpl);
         return userImpl;
     }
 
+    /**
+     * @param session
+     *            the session
+     * @return what is kept in the session for the logged in user, or null if no one is logged in
+     */
+    private static LoggedInUser getStoredUser(HttpSession session) {
+        if (isCookieSessions()) {
+            return CookieSessions.getInstance().getLoggedIn(session);
+        }
+        Object stored = session.getAttribute(LOGGED_IN_USER);
+        if (stored instanceof QiyOAuthUser) {
+            // stored before sessions held a LoggedInUser
+            return new LoggedInUser((QiyOAuthUser) stored);
+        }
+        return (LoggedInUser) stored;
+    }
+
+    /**
+     * @param session
+     *            the session
+     * @param user
+     *            the user that has logged in, stored in the session or in a cookie
+     */
+    private static void storeUser(HttpSession session, LoggedInUser user) {
+        if (isCookieSessions()) {
+            CookieSessions.getInstance().store(session, user);
+        } else {
+            session.setAttribute(LOGGED_IN_USER, user);
+        }
+    }
+
+    /**
+     * Holds the bearer store, created when it is first used
+     */
+    private static final class Bearers {
+        private static final BearerStore STORE = createStore();
+
+        private static BearerStore createStore() {
+            BearerStore store = new BearerStore(OpSdkSpiImplConfiguration.getInstance().bearerStoreConfig);
+            store.registerMetrics();
+            return store;
+        }
+    }
+
+    /**
+     * Holds the codec for self-contained bearer tokens, created when it is first used
+     */
+    private static final class SelfContainedBearers {
+        private static final SignedBearerCodec CODEC = createCodec();
+
+        private static SignedBearerCodec createCodec() {
+            OpSdkSpiImplConfiguration config = OpSdkSpiImplConfiguration.getInstance();
+            BearerStoreConfig bearerConfig = config.bearerStoreConfig;
+            if (!bearerConfig.selfContained.booleanValue()) {
+                return null;
+            }
+            return new SignedBearerCodec(config.iss, bearerConfig.keyPurpose, new SecretStoreImpl(),
+                    bearerConfig.encrypt.booleanValue());
+        }
+    }
+
+    private static BearerStore getBearerStore() {
+        return Bearers.STORE;
+    }
+
+    /**
+     * @return the codec for self-contained bearer tokens, null if they are not enabled
+     */
+    private static SignedBearerCodec getBearerCodec() {
+        return SelfContainedBearers.CODEC;
+    }
+
+    /**
+     * Creates a bearer token that carries the ID token, so that it does not have to be stored. Only available when
+     * {@link BearerStoreConfig#selfContained} is set
+     * 
+     * @param idt
+     *            the ID token
+     * @return the bearer token, signed (and encrypted if so configured)
+     * @throws IllegalStateException
+     *             if self-contained bearer tokens are not enabled
+     */
+    public String createSelfContainedBearer(IDToken idt) {
+        SignedBearerCodec codec = getBearerCodec();
+        if (codec == null) {
+            throw new IllegalStateException("Self-contained bearer tokens are not enabled");
+        }
+        return codec.issue(idt, getBearerStore().getExpiresAt(idt, System.currentTimeMillis()));
+    }
+
     @Override
     public IDToken getBearer(String bearerKey) {
-        return BEARER_CACHE.getIfPresent(bearerKey);
+        SignedBearerCodec codec = getBearerCodec();
+        if (codec != null && SignedBearerCodec.isSelfContained(bearerKey)) {
+            return codec.read(bearerKey, System.currentTimeMillis());
+        }
+        return getBearerStore().get(bearerKey);
     }
 
     @Override
     public Long addBearer(String at, IDToken idt) {
-        BEARER_CACHE.put(at, idt);
-        return BEARER_EXPIRY_SECONDS;
+        if (getBearerCodec() != null && SignedBearerCodec.isSelfContained(at)) {
+            // carries the ID token already, nothing to store
+            long now = System.currentTimeMillis();
+            return Long.valueOf(Math.max(0L, (getBearerStore().getExpiresAt(idt, now) - now) / 1000L));
+        }
+        return Long.valueOf(getBearerStore().put(at, idt));
     }
 }
@@ -0,0 +1,200 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Publishes the statistics of the Guava caches of this project, under {@code caches.<name>.*}: size, hits, misses,
+ * loads, evictions, removals by cause and an estimate of the memory used. A snapshot of all caches is available as the
+ * gauge {@code caches.snapshot}, which is recalculated at most every 10 seconds.
+ * <p>
+ * Caches should be built with {@code recordStats()} and {@link #countingRemovals(String)} (or
+ * {@link #countingRemovals(String, RemovalListener)}) as removal listener.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class CacheMetrics {
+    private static final String PREFIX = "caches";
+
+    /**
+     * The registered caches by name
+     */
+    private static final Map<String, Registered> CACHES = new ConcurrentHashMap<>();
+
+    private static final class Registered {
+        private final Cache<?, ?> cache;
+        private final long bytesPerEntry;
+
+        private Registered(Cache<?, ?> cache, long bytesPerEntry) {
+            this.cache = cache;
+            this.bytesPerEntry = bytesPerEntry;
+        }
+
+        private long estimatedBytes() {
+            return cache.size() * bytesPerEntry;
+        }
+    }
+
+    /**
+     * The removal counters of a cache, by cause, in one registry
+     */
+    private static final class RemovalCounters {
+        private final MetricRegistry registry;
+        private final Map<RemovalCause, Counter> byCause = new EnumMap<>(RemovalCause.class);
+
+        private RemovalCounters(MetricRegistry registry, String name) {
+            this.registry = registry;
+            for (RemovalCause cause : RemovalCause.values()) {
+                String causeName = cause.name().toLowerCase(Locale.ROOT);
+                byCause.put(cause, registry.counter(MetricRegistry.name(PREFIX, name, "removals", causeName)));
+            }
+        }
+    }
+
+    /**
+     * Counts the removals of a cache. The counters are looked up once, and again only when the application sets
+     * another registry: the caches are often built (in static initializers) before that happens
+     */
+    private static final class CountingRemovalListener implements RemovalListener<Object, Object> {
+        private final String name;
+        private final RemovalListener<Object, Object> delegate;
+        private volatile RemovalCounters counters;
+
+        private CountingRemovalListener(String name, RemovalListener<Object, Object> delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<Object, Object> notification) {
+            MetricRegistry registry = Metrics.getRegistry();
+            RemovalCounters current = counters;
+            if (current == null || current.registry != registry) {
+                // a race only looks up the same counters twice
+                current = new RemovalCounters(registry, name);
+                counters = current;
+            }
+            current.byCause.get(notification.getCause()).inc();
+            if (delegate != null) {
+                delegate.onRemoval(notification);
+            }
+        }
+    }
+
+    /**
+     * Private constructor, this is a static holder only
+     */
+    private CacheMetrics() {
+        super();
+    }
+
+    /**
+     * @param name
+     *            the name the cache is registered under
+     * @return a removal listener that counts the removals by cause
+     */
+    public static RemovalListener<Object, Object> countingRemovals(String name) {
+        return countingRemovals(name, null);
+    }
+
+    /**
+     * @param name
+     *            the name the cache is registered under
+     * @param delegate
+     *            is called for every removal after it has been counted, may be null
+     * @return a removal listener that counts the removals by cause
+     */
+    public static RemovalListener<Object, Object> countingRemovals(String name,
+            RemovalListener<Object, Object> delegate) {
+        return new CountingRemovalListener(name, delegate);
+    }
+
+    /**
+     * Registers the gauges for the cache. A cache that was registered under the same name before is replaced, gauges
+     * and all, e.g. when a component is recreated
+     * 
+     * @param name
+     *            a stable name for the cache
+     * @param cache
+     *            the cache, should record its statistics
+     * @param estimatedBytesPerEntry
+     *            rough estimate of the memory an entry uses (key, value and the cache's own overhead)
+     */
+    public static void register(String name, Cache<?, ?> cache, long estimatedBytesPerEntry) {
+        Registered registered = new Registered(cache, estimatedBytesPerEntry);
+        CACHES.put(name, registered);
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "size"), cache::size);
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "estimatedBytes"), registered::estimatedBytes);
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "hits"), () -> cache.stats().hitCount());
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "misses"), () -> cache.stats().missCount());
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "hitRate"), () -> cache.stats().hitRate());
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "loadSuccesses"), () -> cache.stats().loadSuccessCount());
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "loadFailures"), () -> cache.stats().loadExceptionCount());
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "averageLoadPenaltyInMillis"),
+                () -> TimeUnit.NANOSECONDS.toMillis((long) cache.stats().averageLoadPenalty()));
+        Metrics.gauge(MetricRegistry.name(PREFIX, name, "evictions"), () -> cache.stats().evictionCount());
+        Metrics.getRegistry().gauge(MetricRegistry.name(PREFIX, "snapshot"), CacheMetrics::newSnapshotGauge);
+    }
+
+    private static CachedGauge<Map<String, Map<String, Number>>> newSnapshotGauge() {
+        return new CachedGauge<Map<String, Map<String, Number>>>(10, TimeUnit.SECONDS) {
+            @Override
+            protected Map<String, Map<String, Number>> loadValue() {
+                return snapshot();
+            }
+        };
+    }
+
+    /**
+     * @return the statistics of all registered caches, by name
+     */
+    public static Map<String, Map<String, Number>> snapshot() {
+        Map<String, Map<String, Number>> result = new TreeMap<>();
+        CACHES.forEach((name, registered) -> {
+            CacheStats stats = registered.cache.stats();
+            Map<String, Number> values = new TreeMap<>();
+            values.put("size", Long.valueOf(registered.cache.size()));
+            values.put("estimatedBytes", Long.valueOf(registered.estimatedBytes()));
+            values.put("hits", Long.valueOf(stats.hitCount()));
+            values.put("misses", Long.valueOf(stats.missCount()));
+            values.put("hitRate", Double.valueOf(stats.hitRate()));
+            values.put("loadFailures", Long.valueOf(stats.loadExceptionCount()));
+            values.put("evictions", Long.valueOf(stats.evictionCount()));
+            result.put(name, values);
+        });
+        return result;
+    }
+}
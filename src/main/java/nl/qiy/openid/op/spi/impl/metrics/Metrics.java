@@ -0,0 +1,66 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Holds the {@link MetricRegistry} that the classes in this project report to. The application should set the registry
+ * of its environment before starting, until then a private registry is used.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+public final class Metrics {
+    private static volatile MetricRegistry registry = new MetricRegistry();
+
+    /**
+     * Private constructor, this is a static holder only
+     */
+    private Metrics() {
+        super();
+    }
+
+    public static synchronized void setRegistry(MetricRegistry metricRegistry) {
+        registry = metricRegistry;
+    }
+
+    public static MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Registers a gauge under the given name, replacing a metric with that name that was registered before. So a
+     * component that is started again (or created again, like the caches for a new configuration) reports its current
+     * state instead of that of its predecessor
+     * 
+     * @param name
+     *            the name of the gauge
+     * @param gauge
+     *            the gauge itself
+     * @param <T>
+     *            the type of the value of the gauge
+     */
+    public static synchronized <T> void gauge(String name, Gauge<T> gauge) {
+        registry.remove(name);
+        registry.register(name, gauge);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import java.util.concurrent.CountDownLatch
+
+import javax.ws.rs.ProcessingException
+
+import spock.lang.Specification
+
+class CircuitBreakerSpec extends Specification {
+
+    def breaker(Integer openDurationInSeconds) {
+        // window of 4, open after 2 calls when half of them failed or all were slow (over 100 ms)
+        new CircuitBreaker("test", new CircuitBreakerConfig(4, 2, 50, 100, 100, openDurationInSeconds))
+    }
+
+    def fail = { throw new ProcessingException("down") }
+
+    def "stay closed while calls succeed"() {
+        given:
+        def cb = breaker(30)
+
+        when:
+        def results = (1..10).collect { cb.call({ "ok" }, { false }) }
+
+        then:
+        results.every { it == "ok" }
+        cb.state == CircuitBreaker.State.CLOSED
+    }
+
+    def "open when too many calls fail and refuse calls without making them"() {
+        given:
+        def cb = breaker(30)
+        def made = 0
+
+        when:
+        cb.call({ "ok" }, { false })
+        cb.call(fail, { false })
+
+        then:
+        thrown(ProcessingException)
+        cb.state == CircuitBreaker.State.OPEN
+        !cb.available
+
+        when:
+        cb.call({ made++; "ok" }, { false })
+
+        then:
+        thrown(NodeUnavailableException)
+        made == 0
+    }
+
+    def "count results marked as failure"() {
+        given:
+        def cb = breaker(30)
+
+        when:
+        2.times { cb.call({ 503 }, { it >= 500 }) }
+
+        then:
+        cb.state == CircuitBreaker.State.OPEN
+    }
+
+    def "close after a successful probe and open again after a failed one"() {
+        given:
+        def cb = breaker(0)
+        2.times {
+            try {
+                cb.call(fail, { false })
+            } catch (ProcessingException e) {
+                // expected
+            }
+        }
+
+        expect:
+        cb.state == CircuitBreaker.State.OPEN
+        cb.available
+
+        when:
+        cb.call(fail, { false })
+
+        then:
+        thrown(ProcessingException)
+        cb.state == CircuitBreaker.State.OPEN
+
+        when:
+        def result = cb.call({ "ok" }, { false })
+
+        then:
+        result == "ok"
+        cb.state == CircuitBreaker.State.CLOSED
+    }
+
+    def "let only the probe decide, even when it throws an Error"() {
+        given:
+        def cb = breaker(0)
+        def inFlight = null
+        2.times {
+            try {
+                cb.call(fail, { false })
+            } catch (ProcessingException e) {
+                // expected
+            }
+        }
+
+        when: "the probe fails with an Error while a call that was made earlier finishes"
+        cb.call({
+            inFlight = cb.state
+            throw new AssertionError("boom")
+        }, { false })
+
+        then:
+        thrown(AssertionError)
+        inFlight == CircuitBreaker.State.HALF_OPEN
+        cb.state == CircuitBreaker.State.OPEN
+
+        when: "the next probe is let through"
+        def result = cb.call({ "ok" }, { false })
+
+        then:
+        result == "ok"
+        cb.state == CircuitBreaker.State.CLOSED
+    }
+
+    def "ignore a call made before the breaker opened that finishes while half open"() {
+        given:
+        def cb = breaker(0)
+        def probeStarted = new CountDownLatch(1)
+        def finishProbe = new CountDownLatch(1)
+        def probe = null
+
+        when: "a call opens the breaker from within, and a probe is started on another thread"
+        cb.call({
+            2.times {
+                try {
+                    cb.call(fail, { false })
+                } catch (ProcessingException e) {
+                    // expected
+                }
+            }
+            probe = Thread.start {
+                cb.call({ probeStarted.countDown(); finishProbe.await(); "ok" }, { false })
+            }
+            probeStarted.await()
+            "late failure"
+        }, { true })
+
+        then: "the late failure does not decide"
+        cb.state == CircuitBreaker.State.HALF_OPEN
+
+        when:
+        finishProbe.countDown()
+        probe.join()
+
+        then:
+        cb.state == CircuitBreaker.State.CLOSED
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class ClaimsCacheSpec extends Specification {
+    def connectionUri = URI.create("https://node.example.com/connections/1")
+    def referencesUri = URI.create("https://node.example.com/connections/1/references")
+    def fetched = []
+
+    def setup() {
+        def connection = new QiyConnection(new Date(), null, [references: referencesUri])
+        ConnectionCache.init(new ConnectionCacheConfig(), { connection })
+    }
+
+    def init(boolean prefetch, Object body) {
+        ClaimsCache.init(new ClaimsCacheConfig(null, null, null, prefetch, null), { fetched << it; body })
+    }
+
+    def "turn the card into claims"() {
+        given:
+        init(false, [firstName: "Jan", emailAddress: "jan@example.com", address: [locality: "Utrecht"]])
+
+        when:
+        def claims = ClaimsCache.load("pid-1", connectionUri)
+
+        then:
+        fetched == [referencesUri]
+        claims != null
+    }
+
+    def "refuse what is not a card"() {
+        given:
+        init(false, body)
+
+        when:
+        ClaimsCache.load("pid-1", connectionUri)
+
+        then:
+        thrown(IllegalStateException)
+
+        where:
+        body << [null, [[firstName: "Jan"]], [references: ["https://node.example.com/x"]]]
+    }
+
+    def "do not prefetch by default"() {
+        given:
+        init(new ClaimsCacheConfig().prefetch, [firstName: "Jan"])
+
+        when:
+        ClaimsCache.prefetch("pid-2", connectionUri)
+
+        then:
+        Thread.sleep(100)
+        fetched.isEmpty()
+        ClaimsCache.getIfPresent("pid-2") == null
+    }
+
+    def "prefetch when so configured"() {
+        given:
+        init(true, [firstName: "Jan"])
+
+        when:
+        ClaimsCache.prefetch("pid-3", connectionUri)
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert ClaimsCache.getIfPresent("pid-3") != null
+        }
+    }
+}
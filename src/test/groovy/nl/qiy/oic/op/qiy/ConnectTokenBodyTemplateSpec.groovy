@@ -0,0 +1,68 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+
+class ConnectTokenBodyTemplateSpec extends Specification {
+    def slurper = new JsonSlurper()
+
+    def "render only the callback action when there are no share actions"() {
+        when:
+        def json = slurper.parse(ConnectTokenBodyTemplate.EMPTY.render("https://op.example.com/qiy/callback/ABC", [1, 2, 3] as byte[]))
+
+        then:
+        json == [actions: [[key: "callback", method: "POST", type: "application/octet-stream",
+                            uri: "https://op.example.com/qiy/callback/ABC", body: "AQID"]]]
+    }
+
+    def "render the share actions after the callback action"() {
+        given:
+        def shareActions = [[key: "share", uri: "https://card.example.com/share", nested: [a: 1]], [key: "other"]]
+
+        when:
+        def json = slurper.parse(new ConnectTokenBodyTemplate(shareActions).render("https://op.example.com/cb", new byte[0]))
+
+        then:
+        json.actions.size() == 3
+        json.actions[0].uri == "https://op.example.com/cb"
+        json.actions[0].body == ""
+        json.actions[1] == shareActions[0]
+        json.actions[2] == shareActions[1]
+    }
+
+    def "escape the callback uri"() {
+        when:
+        def json = slurper.parse(ConnectTokenBodyTemplate.EMPTY.render('https://op.example.com/"\\', new byte[0]))
+
+        then:
+        json.actions[0].uri == 'https://op.example.com/"\\'
+    }
+
+    def "render only the share actions when there is no callback"() {
+        given:
+        def shareActions = [[key: "share", uri: "https://card.example.com/share"], [key: "other"]]
+
+        expect:
+        slurper.parse(ConnectTokenBodyTemplate.EMPTY.render()) == [actions: []]
+        slurper.parse(new ConnectTokenBodyTemplate(shareActions).render()) == [actions: shareActions]
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import spock.lang.Specification
+
+class ConnectionCacheSpec extends Specification {
+    def uri = URI.create("https://node.example.com/connections/1")
+    def loads = 0
+
+    def connection(long activeForMillis) {
+        new QiyConnection(new Date(), new Date(System.currentTimeMillis() + activeForMillis),
+                [references: URI.create("https://node.example.com/connections/1/references")])
+    }
+
+    def init(Closure<QiyConnection> fetcher) {
+        ConnectionCache.init(new ConnectionCacheConfig(), { loads++; fetcher.call(it) })
+    }
+
+    def "fetch an active connection only once"() {
+        given:
+        def active = connection(60_000L)
+        init { active }
+
+        expect:
+        ConnectionCache.get(uri).is(active)
+        ConnectionCache.get(uri).is(active)
+        loads == 1
+    }
+
+    def "fetch a connection that is no longer active again"() {
+        given:
+        init { connection(-1L) }
+
+        when:
+        ConnectionCache.get(uri)
+        ConnectionCache.get(uri)
+
+        then:
+        loads == 2
+    }
+
+    def "return null when the node has no connection"() {
+        given:
+        init { null }
+
+        expect:
+        ConnectionCache.get(uri) == null
+    }
+
+    def "rethrow what the node client threw"() {
+        given:
+        init { throw new IllegalStateException("node down") }
+
+        when:
+        ConnectionCache.get(uri)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "node down"
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
+
+import com.codahale.metrics.health.HealthCheck.Result
+
+import spock.lang.Specification
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+@Timeout(30)
+class HealthMonitorSpec extends Specification {
+    def conditions = new PollingConditions(timeout: 10)
+    /**
+     * The threads the node was called on
+     */
+    def nodeCalls = new CopyOnWriteArrayList<String>()
+    def nodeMayAnswer = new CountDownLatch(1)
+    def monitor = new HealthMonitor({ new HealthConfig(1, null, null, null) }, {
+        [(HealthMonitor.CLIENTS): { Result.healthy() } as Supplier,
+         (HealthMonitor.NODE)   : {
+             nodeCalls << Thread.currentThread().name
+             nodeMayAnswer.await(20, TimeUnit.SECONDS)
+             Result.healthy("called")
+         } as Supplier]
+    })
+
+    def cleanup() {
+        nodeMayAnswer.countDown()
+        monitor.stop()
+    }
+
+    def "run the checks for the caller when not started, but call the node in the background"() {
+        when:
+        def results = monitor.getResults()
+
+        then:
+        results[HealthMonitor.CLIENTS].healthy
+        results[HealthMonitor.NODE].message == "not called yet"
+        conditions.eventually {
+            assert nodeCalls == ["HealthMonitor-node"]
+        }
+
+        when:
+        nodeMayAnswer.countDown()
+
+        then: "a later round reports the outcome"
+        conditions.eventually {
+            assert monitor.getResults()[HealthMonitor.NODE].message == "called"
+        }
+        !nodeCalls.contains(Thread.currentThread().name)
+    }
+
+    def "answer the caller while the first round after start is still waiting for the node"() {
+        given:
+        monitor.start()
+        conditions.eventually {
+            assert nodeCalls == ["HealthMonitor"]
+        }
+
+        when:
+        def results = monitor.getResults()
+
+        then:
+        results[HealthMonitor.CLIENTS].healthy
+        results[HealthMonitor.NODE].message == "not called yet"
+        nodeCalls == ["HealthMonitor"]
+
+        when:
+        nodeMayAnswer.countDown()
+
+        then:
+        conditions.eventually {
+            assert monitor.getResults()[HealthMonitor.NODE].message == "called"
+        }
+    }
+
+    def "report the checks as stuck when the last round is more than three intervals ago"() {
+        given: "a round that never finishes"
+        monitor.start()
+        conditions.eventually {
+            assert nodeCalls == ["HealthMonitor"]
+        }
+
+        when:
+        monitor.@snapshot = new HealthMonitor.Snapshot([(HealthMonitor.CLIENTS): Result.healthy()],
+                System.nanoTime() - TimeUnit.SECONDS.toNanos(age))
+
+        then:
+        monitor.healthy == healthy
+        monitor.isHealthy(HealthMonitor.CLIENTS) == healthy
+        monitor.getResults().containsKey("healthMonitor") == !healthy
+
+        where:
+        age || healthy
+        2   || true
+        4   || false
+    }
+}
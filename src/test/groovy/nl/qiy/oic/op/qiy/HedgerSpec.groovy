@@ -0,0 +1,147 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Consumer
+import java.util.function.Supplier
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class HedgerSpec extends Specification {
+    def attempts = new AtomicInteger()
+    def released = new CopyOnWriteArrayList()
+    def release = { released << it } as Consumer
+    def firstMayFinish = new CountDownLatch(1)
+
+    def hedger(int delayInMillis, int budgetPercent, int threads = 4) {
+        new Hedger("spec-" + UUID.randomUUID(),
+                new HedgingConfig(true, null, null, delayInMillis, budgetPercent, threads))
+    }
+
+    /**
+     * @return an attempt that lets every call do what the given closure says for its number (1 for the first)
+     */
+    Supplier attempt(Closure byNumber) {
+        { -> byNumber(attempts.incrementAndGet()) } as Supplier
+    }
+
+    def "do not hedge an attempt that answers within the delay"() {
+        when:
+        def result = hedger(1000, 100).call(attempt { "answer " + it }, release)
+
+        then:
+        result == "answer 1"
+        attempts.get() == 1
+        released.isEmpty()
+    }
+
+    def "hedge a slow attempt and release the result of the loser"() {
+        given:
+        def slowFirst = attempt { n ->
+            if (n == 1) {
+                firstMayFinish.await(5, TimeUnit.SECONDS)
+            }
+            "answer " + n
+        }
+
+        when:
+        def result = hedger(50, 100).call(slowFirst, release)
+
+        then:
+        result == "answer 2"
+        attempts.get() == 2
+
+        when:
+        firstMayFinish.countDown()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert released == ["answer 1"]
+        }
+    }
+
+    def "make the hedge on the calling thread when all threads are busy"() {
+        given:
+        def threads = new CopyOnWriteArrayList()
+        def slowFirst = attempt { n ->
+            threads << Thread.currentThread()
+            if (n == 1) {
+                firstMayFinish.await(5, TimeUnit.SECONDS)
+            }
+            "answer " + n
+        }
+
+        when:
+        def result = hedger(50, 100, 1).call(slowFirst, release)
+        firstMayFinish.countDown()
+
+        then:
+        result == "answer 2"
+        threads[1] == Thread.currentThread()
+    }
+
+    def "wait for the slow attempt when the budget is used up"() {
+        given:
+        def slow = attempt { n ->
+            Thread.sleep(200)
+            "answer " + n
+        }
+
+        when:
+        def result = hedger(20, 0).call(slow, release)
+
+        then:
+        result == "answer 1"
+        attempts.get() == 1
+    }
+
+    def "throw what an attempt threw when both attempts fail"() {
+        given:
+        def failing = attempt { n ->
+            if (n == 1) {
+                Thread.sleep(200)
+            }
+            throw new IllegalStateException("attempt " + n)
+        }
+
+        when:
+        hedger(50, 100).call(failing, release)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message.startsWith("attempt ")
+        attempts.get() == 2
+        released.isEmpty()
+    }
+
+    def "throw right away when the attempt fails within the delay"() {
+        when:
+        hedger(1000, 100).call(attempt { throw new IllegalArgumentException("no") }, release)
+
+        then:
+        thrown(IllegalArgumentException)
+        attempts.get() == 1
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.qiy
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import javax.ws.rs.client.Client
+import javax.ws.rs.client.ClientBuilder
+
+import org.glassfish.jersey.media.sse.EventInput
+import org.glassfish.jersey.media.sse.InboundEvent
+import org.glassfish.jersey.media.sse.SseFeature
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class NodeEventListenerSpec extends Specification {
+    def opened = new CopyOnWriteArrayList()
+    def streams = [].asSynchronized()
+    def conditions = new PollingConditions(timeout: 10)
+    NodeEventListener listener
+
+    /**
+     * Stands in for the node: every request gets the next of the streams, after which the stream ends
+     */
+    @Shared
+    HttpServer node
+    @Shared
+    Client client = ClientBuilder.newClient().register(SseFeature)
+    @Shared
+    List<String> served = [].asSynchronized()
+
+    def setupSpec() {
+        node = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        node.createContext("/events") { HttpExchange exchange ->
+            byte[] body = (served ? served.remove(0) : "").getBytes(StandardCharsets.UTF_8)
+            exchange.responseHeaders.add("Content-Type", SseFeature.SERVER_SENT_EVENTS)
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length)
+            exchange.responseBody.withCloseable { it.write(body) }
+        }
+        node.start()
+    }
+
+    def cleanupSpec() {
+        node.stop(0)
+        client.close()
+    }
+
+    def cleanup() {
+        listener?.stop()
+    }
+
+    /**
+     * @return the node's event stream, with the next of the streams
+     */
+    EventInput eventInput() {
+        served << (streams ? streams.remove(0) : "")
+        client.target("http://localhost:${node.address.port}/events").request(SseFeature.SERVER_SENT_EVENTS)
+                .get(EventInput)
+    }
+
+    static String events(String... idsAndNames) {
+        idsAndNames.collect { def (id, name) = it.split(":"); "id: $id\nevent: $name\ndata: {}\n\n" }.join()
+    }
+
+    def start(int threads, int queueCapacity) {
+        def config = new NodeEventsConfig(true, 10, 50, threads, queueCapacity, null, null)
+        listener = new NodeEventListener({ config }, { String lastEventId ->
+            opened << lastEventId
+            eventInput()
+        })
+        listener
+    }
+
+    def "reconnect after the stream ends and resume after the last event"() {
+        given:
+        streams << events("1:a", "2:a") << events("3:a")
+        def received = new CopyOnWriteArrayList()
+        start(1, 10).register({ InboundEvent event -> received << event.id } as NodeEventHandler)
+
+        when:
+        listener.start()
+
+        then:
+        conditions.eventually {
+            assert received == ["1", "2", "3"]
+            assert opened.take(3) == [null, "2", "3"]
+        }
+    }
+
+    def "back off exponentially while the stream keeps failing, but not beyond the maximum"() {
+        given:
+        start(1, 10)
+        listener.@config = new NodeEventsConfig(true, 100, 1000, null, null, null, null)
+
+        expect:
+        (1..20).every {
+            def delay = listener.nextDelayInMillis(failures)
+            delay >= minimum && delay <= maximum
+        }
+
+        where:
+        failures | minimum | maximum
+        1        | 100     | 120
+        2        | 200     | 240
+        3        | 400     | 480
+        5        | 1000    | 1000
+        30       | 1000    | 1000
+    }
+
+    def "handle events with the same ordering key in order"() {
+        given:
+        def ids = (1..200).collect { "$it:${it % 5}" }
+        streams << events(ids as String[])
+        def handled = [:].withDefault { new CopyOnWriteArrayList() }.asSynchronized()
+        start(4, 10).register(new NodeEventHandler() {
+            @Override
+            void handle(InboundEvent event) {
+                Thread.sleep(event.id.toInteger() % 3)
+                handled[event.name] << event.id.toInteger()
+            }
+
+            @Override
+            Object orderingKey(InboundEvent event) {
+                event.name
+            }
+        })
+
+        when:
+        listener.start()
+
+        then:
+        conditions.eventually {
+            assert handled.values().sum { it.size() } == 200
+        }
+        handled.values().every { it == it.sort(false) }
+    }
+
+    def "stop reading while the lane of an event is full"() {
+        given:
+        streams << events("1:a", "2:a", "3:a", "4:a")
+        def mayHandle = new CountDownLatch(1)
+        def handled = new CopyOnWriteArrayList()
+        start(1, 1).register({ InboundEvent event ->
+            mayHandle.await(10, TimeUnit.SECONDS)
+            handled << event.id
+        } as NodeEventHandler)
+
+        when: "event 1 is being handled, 2 is queued and 3 waits for room"
+        listener.start()
+
+        then:
+        conditions.eventually {
+            assert listener.@lastEventId == "3"
+        }
+        Thread.sleep(200)
+        listener.@lastEventId == "3"
+        handled.isEmpty()
+
+        when:
+        mayHandle.countDown()
+
+        then:
+        conditions.eventually {
+            assert handled == ["1", "2", "3", "4"]
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.config
+
+import java.util.regex.Pattern
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class UriMatcherSpec extends Specification {
+    static uris = [
+        "http://app.example.com/callback",
+        "https://app.example.com/callback",
+        "https://app.example.com/callback?code=1",
+        "https://app.example.com/callbackX",
+        "https://appXexample.com/callback",
+        "https://other.example.com/callback",
+        "ftp://app.example.com/callback",
+        "https://app.example.com/",
+    ]
+
+    @Unroll
+    def "recognise #regex as literal: #literal"() {
+        expect:
+        UriMatcher.compile(regex).isLiteral() == literal
+
+        where:
+        regex                                       | literal
+        "^https?://.*"                              | true
+        "^https://app\\.example\\.com/callback.*"   | true
+        "https://app\\.example\\.com/callback"      | true
+        "^https://app\\.example\\.com/callback\$"   | true
+        "^https://app.example.com/callback.*"       | false
+        "^https://(app|www)\\.example\\.com/.*"     | false
+        "^https://app\\.example\\.com/\\d+"         | false
+        "^https://app\\.example\\.com/callback\\.*" | false
+    }
+
+    @Unroll
+    def "give the same verdicts as the regex #regex"() {
+        given:
+        def matcher = UriMatcher.compile(regex)
+        def pattern = Pattern.compile(regex)
+
+        expect:
+        uris.every { matcher.matches(URI.create(it)) == pattern.matcher(it).matches() }
+
+        where:
+        regex << [
+            "^https?://.*",
+            "^https://app\\.example\\.com/callback.*",
+            "https://app\\.example\\.com/callback",
+            "^https?://app\\.example\\.com/callback\$",
+            "^https://app.example.com/callback.*",
+            "^https://(app|other)\\.example\\.com/.*",
+        ]
+    }
+}
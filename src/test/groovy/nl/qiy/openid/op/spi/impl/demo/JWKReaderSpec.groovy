@@ -20,12 +20,19 @@
 package nl.qiy.openid.op.spi.impl.demo;
 
 import java.nio.file.Paths
+import java.security.KeyStore
+
+import javax.crypto.spec.SecretKeySpec
 
 import spock.lang.Shared
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import com.nimbusds.jose.JWSAlgorithm
+import com.nimbusds.jose.jwk.JWKSet
 import com.nimbusds.jose.jwk.KeyType
+import com.nimbusds.jose.jwk.KeyUse
+import com.nimbusds.jose.jwk.OctetSequenceKey
 
 import nl.qiy.openid.op.spi.impl.config.JWKConfig
 import nl.qiy.openid.op.spi.impl.keystore.JWKReader;;
@@ -80,4 +87,38 @@ class JWKReaderSpec extends Specification {
         "testRSA" | KeyType.RSA
         "testEC"  | KeyType.EC
     }
-}
\ No newline at end of file
+
+    @Unroll
+    def "load an HMAC secret key from a #storeType key store as #alg"() {
+        given:
+        def file = File.createTempFile("hmac", ".ks")
+        def keyStore = KeyStore.getInstance(storeType)
+        keyStore.load(null, null)
+        def secret = new SecretKeySpec(new byte[64], jca)
+        def protection = new KeyStore.PasswordProtection(keystorePass.toCharArray())
+        keyStore.setEntry("testHMAC", new KeyStore.SecretKeyEntry(secret), protection)
+        file.withOutputStream { keyStore.store(it, keystorePass.toCharArray()) }
+        def config = new JWKConfig(file.absolutePath, storeType, keystorePass, keystorePass)
+
+        when:
+        def jwk = new JWKReader("testHMAC", config).getJWK()
+
+        then:
+        jwk instanceof OctetSequenceKey
+        jwk.keyType == KeyType.OCT
+        jwk.algorithm == alg
+        jwk.keyUse == KeyUse.SIGNATURE
+        jwk.keyID == "testHMAC"
+        jwk.toByteArray() == secret.encoded
+        new JWKSet(jwk).toPublicJWKSet().keys.empty
+
+        cleanup:
+        file.delete()
+
+        where:
+        storeType | jca          | alg
+        "JCEKS"   | "HmacSHA256" | JWSAlgorithm.HS256
+        "JCEKS"   | "HmacSHA512" | JWSAlgorithm.HS512
+        "PKCS12"  | "HmacSHA384" | JWSAlgorithm.HS384
+    }
+}
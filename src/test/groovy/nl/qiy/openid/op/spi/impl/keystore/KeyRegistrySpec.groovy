@@ -0,0 +1,176 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.keystore
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+
+import spock.lang.Specification
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
+
+import com.nimbusds.jose.JWSHeader
+import com.nimbusds.jose.JWSSigner
+import com.nimbusds.jose.crypto.ECDSASigner
+import com.nimbusds.jose.crypto.RSASSASigner
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jwt.JWTClaimsSet
+import com.nimbusds.jwt.SignedJWT
+
+import nl.qiy.openid.op.spi.impl.config.JWKConfig
+
+class KeyRegistrySpec extends Specification {
+    def keystore = Paths.get(this.getClass().getResource("/test.jks").toURI())
+    def dir = Files.createTempDirectory("keys")
+    def copy = Files.copy(keystore, dir.resolve("keys.jks"))
+
+    def cleanup() {
+        dir.toFile().deleteDir()
+    }
+
+    def config() {
+        new JWKConfig(copy.toString(), null, "abacus", "abacus")
+    }
+
+    def "load the keys per purpose and keep them when the key store breaks"() {
+        given:
+        def registry = new KeyRegistry([idToken: [testRSA: config(), testEC: config()], userInfo: [testEC: config()]])
+
+        expect:
+        registry.getJWKSet("idToken").keys*.keyID == ["testRSA", "testEC"]
+        registry.getJWKSet("userInfo").keys*.keyID == ["testEC"]
+
+        when:
+        def before = registry.getJWKSet("idToken").keys[0]
+        copy.text = "not a key store"
+
+        then:
+        !registry.reload()
+        registry.getJWKSet("idToken").keys[0].is(before)
+
+        when:
+        Files.copy(keystore, copy, StandardCopyOption.REPLACE_EXISTING)
+
+        then:
+        registry.reload()
+        !registry.getJWKSet("idToken").keys[0].is(before)
+    }
+
+    def "hand out a new set of keys every time"() {
+        given:
+        def registry = new KeyRegistry([idToken: [testRSA: config(), testEC: config()]])
+
+        when:
+        registry.getJWKSet("idToken").keys.clear()
+
+        then:
+        registry.getJWKSet("idToken").keys*.keyID == ["testRSA", "testEC"]
+    }
+
+    def "reload when the directory the key store links to is swapped"() {
+        given: "a key store that is a link into ..data, like a mounted Kubernetes secret"
+        Files.createDirectory(dir.resolve("v1"))
+        Files.move(copy, dir.resolve("v1/keys.jks"))
+        Files.createSymbolicLink(dir.resolve("..data"), Paths.get("v1"))
+        Files.createSymbolicLink(copy, Paths.get("..data/keys.jks"))
+        def registry = new KeyRegistry([idToken: [testRSA: config()]])
+        registry.start()
+        def reloads = registry.reloads.count
+
+        when: "only ..data changes"
+        Files.createDirectory(dir.resolve("v2"))
+        Files.copy(keystore, dir.resolve("v2/keys.jks"))
+        Files.createSymbolicLink(dir.resolve("..data_tmp"), Paths.get("v2"))
+        Files.move(dir.resolve("..data_tmp"), dir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE)
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            assert registry.reloads.count > reloads
+        }
+
+        cleanup:
+        registry.stop()
+    }
+
+    def "serialize only the public keys, with a tag that follows the keys"() {
+        given:
+        def registry = new KeyRegistry([idToken: [testRSA: config(), testEC: config()], userInfo: [testEC: config()]])
+        def published = registry.getPublicJWKS("idToken")
+        def parsed = JWKSet.parse(new String(published.json, StandardCharsets.UTF_8))
+
+        expect:
+        parsed.keys*.keyID == ["testRSA", "testEC"]
+        parsed.keys.every { !it.private }
+        registry.getPublicJWKS("userInfo").entityTag != published.entityTag
+        registry.getPublicJWKS("requestObject") == null
+
+        when:
+        registry.reload()
+
+        then:
+        !registry.getPublicJWKS("idToken").is(published)
+        registry.getPublicJWKS("idToken").entityTag == published.entityTag
+    }
+
+    JWSSigner nimbusSigner(jwk) {
+        if (jwk instanceof RSAKey) {
+            return new RSASSASigner(jwk)
+        }
+        new ECDSASigner(jwk)
+    }
+
+    @Unroll
+    def "sign and verify like nimbus does with #kid"() {
+        given:
+        def registry = new KeyRegistry([idToken: [testRSA: config(), testEC: config()]])
+        def jwk = registry.getJWKSet("idToken").getKeyByKeyId(kid)
+        def header = new JWSHeader.Builder(jwk.algorithm).keyID(kid).build()
+        def claims = new JWTClaimsSet.Builder().subject("pid").build()
+        JWSSigner nimbus = nimbusSigner(jwk)
+
+        when:
+        def ours = new SignedJWT(header, claims)
+        ours.sign(registry.getSigner(kid))
+        def theirs = new SignedJWT(header, claims)
+        theirs.sign(nimbus)
+        def tampered = SignedJWT.parse(theirs.serialize().replaceAll(/\.[^.]+\./, ".e30."))
+
+        then:
+        SignedJWT.parse(ours.serialize()).verify(new DefaultJWSVerifierFactory()
+                .createJWSVerifier(header, jwk.toPublicKey()))
+        SignedJWT.parse(theirs.serialize()).verify(registry.getVerifier(kid))
+        !tampered.verify(registry.getVerifier(kid))
+
+        where:
+        kid << ["testRSA", "testEC"]
+    }
+
+    def "refuse unknown purposes"() {
+        when:
+        new KeyRegistry([idToken: [testRSA: config()]]).getJWKSet("userInfo")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
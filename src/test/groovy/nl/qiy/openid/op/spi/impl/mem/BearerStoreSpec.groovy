@@ -0,0 +1,156 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.nio.charset.StandardCharsets
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+import com.google.common.hash.Hashing
+
+import nl.qiy.oic.op.domain.IDToken
+import nl.qiy.openid.op.spi.impl.config.BearerStoreConfig
+import spock.lang.Specification
+
+class BearerStoreSpec extends Specification {
+    static final long START = 1_800_000_000_000L
+
+    def clock = new TestClock(millis: START)
+    def store = new BearerStore(new BearerStoreConfig(null, 900, null, null, null), clock)
+
+    def idToken(String sub, Long expInSeconds) {
+        def result = new IDToken()
+        result.sub = sub
+        result.exp = expInSeconds == null ? null : START.intdiv(1000L) + expInSeconds
+        result
+    }
+
+    def "return the ID token that was stored for the bearer"() {
+        when:
+        def ttl = store.put("bearer-1", idToken("pid-1", 300L))
+        def found = store.get("bearer-1")
+
+        then:
+        ttl == 300L
+        found.sub == "pid-1"
+        found.exp == START.intdiv(1000L) + 300L
+        store.get("bearer-2") == null
+    }
+
+    def "key the entries by the SHA-256 hash of the bearer"() {
+        given:
+        def bearer = "x" * 2000
+
+        when:
+        store.put(bearer, idToken("pid-1", 300L))
+
+        then:
+        store.cache.asMap().keySet() == [Hashing.sha256().hashString(bearer, StandardCharsets.UTF_8)] as Set
+    }
+
+    def "expire every entry at the exp of its own ID token"() {
+        given:
+        store.put("short", idToken("pid-1", 60L))
+        store.put("long", idToken("pid-2", 600L))
+
+        when:
+        clock.millis = START + 60_000L
+
+        then:
+        store.get("short") == null
+        store.get("long").sub == "pid-2"
+
+        when:
+        clock.millis = START + 600_000L
+
+        then:
+        store.get("long") == null
+    }
+
+    def "use the maximum TTL when the ID token has no exp or a later one"() {
+        expect:
+        store.put("bearer", idToken("pid-1", exp)) == 900L
+
+        where:
+        exp << [null, 3600L]
+    }
+
+    def "do not store an ID token that has expired"() {
+        expect:
+        store.put("bearer", idToken("pid-1", -1L)) == 0L
+        store.get("bearer") == null
+        store.cache.size() == 0L
+    }
+
+    def "encode the claims of the ID token in a few bytes"() {
+        when:
+        def encoded = BearerStore.encode(idToken(sub, exp))
+        def decoded = BearerStore.decode(encoded)
+
+        then:
+        encoded.length == size
+        decoded.sub == sub
+        decoded.exp == (exp == null ? null : START.intdiv(1000L) + exp)
+
+        where:
+        sub     | exp  || size
+        "pid-1" | 300L || 18
+        "pid-1" | null || 10
+        null    | 300L || 11
+    }
+
+    def "refuse bytes of another version"() {
+        given:
+        def encoded = BearerStore.encode(idToken("pid-1", 300L))
+        encoded[0] = 2 as byte
+
+        when:
+        BearerStore.decode(encoded)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    static class TestClock extends Clock {
+        long millis
+
+        @Override
+        long millis() {
+            millis
+        }
+
+        @Override
+        Instant instant() {
+            Instant.ofEpochMilli(millis)
+        }
+
+        @Override
+        ZoneId getZone() {
+            ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            this
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.nio.file.Files
+
+import spock.lang.Specification
+
+import nl.qiy.openid.op.spi.impl.config.ClientRegistryConfig
+import nl.qiy.openid.op.spi.impl.config.OAuthClientConfig
+
+class ClientRegistrySpec extends Specification {
+    def dir = Files.createTempDirectory("clients")
+
+    def cleanup() {
+        dir.toFile().deleteDir()
+    }
+
+    def "merge configured and file clients, keep the old clients when the files break"() {
+        given:
+        dir.resolve("a.yml").text = """
+- id: a
+  uriRegex: https://a.example.com/.*
+  origin:
+  - https://a.example.com
+- id: b
+  uriRegex: https://b.example.com/.*
+  origin:
+  - https://b.example.com
+"""
+        def configured = [new OAuthClientConfig("a", "https://old.example.com/.*", ["https://old.example.com"])]
+        def registry = new ClientRegistry(new ClientRegistryConfig(dir.toString(), null), configured)
+
+        expect:
+        registry.snapshot.clients.keySet() == ["a", "b"] as Set
+        registry.snapshot.origins.size() == 2
+        registry.snapshot.origins.contains("https://b.example.com")
+        !registry.snapshot.origins.contains("https://old.example.com")
+
+        when:
+        dir.resolve("c.json").text = '{"id": "c", "uriRegex": "https://c.example.com/.*"}'
+
+        then:
+        registry.reload()
+        registry.snapshot.clients.keySet() == ["a", "b", "c"] as Set
+
+        when:
+        dir.resolve("d.yml").text = "- uriRegex: no id"
+
+        then:
+        !registry.reload()
+        registry.snapshot.clients.keySet() == ["a", "b", "c"] as Set
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.time.Instant
+
+import nl.qiy.oic.op.qiy.QiyOAuthUser
+import nl.qiy.openid.op.spi.impl.config.SessionCookieConfig
+import spock.lang.Specification
+
+class CookieSessionsSpec extends Specification {
+    static final String SECRET = Base64.encoder.encodeToString((0..31).collect { it as byte } as byte[])
+
+    def user = new LoggedInUser(new QiyOAuthUser("pid-1", URI.create("https://node.example.com/connections/1"),
+            Instant.ofEpochMilli(1_800_000_000_000L)))
+
+    def sessions(String secret, Integer maxAgeInSeconds) {
+        new CookieSessions(new SessionCookieConfig(true, null, secret, maxAgeInSeconds, null, null))
+    }
+
+    def "read the user from the cookie value"() {
+        given:
+        def sessions = sessions(SECRET, null)
+
+        when:
+        LoggedInUser read = sessions.decode(sessions.encode(user))
+
+        then:
+        read.subject == "pid-1"
+        read.toUser().connectionUri == user.toUser().connectionUri
+        read.toUser().loginTime == user.toUser().loginTime
+    }
+
+    def "ignore a cookie value that was tampered with"() {
+        given:
+        def sessions = sessions(SECRET, null)
+        def parts = sessions.encode(user).split("\\.")
+        def cipherText = Base64.urlDecoder.decode(parts[3])
+        cipherText[0] = (byte) (cipherText[0] ^ 1)
+        parts[3] = Base64.urlEncoder.withoutPadding().encodeToString(cipherText)
+
+        expect:
+        sessions.decode(parts.join(".")) == null
+        sessions.decode("not a cookie") == null
+    }
+
+    def "ignore a cookie of another secret"() {
+        given:
+        def other = Base64.encoder.encodeToString(new byte[32])
+
+        expect:
+        sessions(SECRET, null).decode(sessions(other, null).encode(user)) == null
+    }
+
+    def "ignore an expired cookie"() {
+        given:
+        def sessions = sessions(SECRET, 0)
+
+        expect:
+        sessions.decode(sessions.encode(user)) == null
+    }
+
+    def "refuse a secret that is not 256 bits"() {
+        when:
+        new SessionCookieConfig(true, null, secret, null, null, null)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        secret << [Base64.encoder.encodeToString(new byte[16]), "not base64!"]
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.time.Instant
+
+import spock.lang.Specification
+
+import nl.qiy.oic.op.qiy.CallbackInput
+import nl.qiy.oic.op.qiy.QiyOAuthUser
+
+class LoggedInUserSpec extends Specification {
+    def pid = "pid-" + "x" * 40
+    def connection = "https://node.example.com/api/connections/" + UUID.randomUUID()
+
+    def serialize(Object o) {
+        def baos = new ByteArrayOutputStream()
+        new ObjectOutputStream(baos).withCloseable { it.writeObject(o) }
+        baos.toByteArray()
+    }
+
+    def deserialize(byte[] bytes) {
+        new ObjectInputStream(new ByteArrayInputStream(bytes)).withCloseable { it.readObject() }
+    }
+
+    def user() {
+        def user = new QiyOAuthUser(new CallbackInput(pid, connection, new byte[1500]))
+        user.resetLoginTime()
+        user
+    }
+
+    def "keep subject, connection and login time through serialization"() {
+        given:
+        def user = user()
+
+        when:
+        LoggedInUser viaJava = deserialize(serialize(new LoggedInUser(user)))
+        LoggedInUser viaBytes = LoggedInUser.fromBytes(new LoggedInUser(user).toBytes())
+
+        then:
+        [viaJava, viaBytes].every {
+            def restored = it.toUser()
+            restored.subject == pid && restored.connectionUri.toString() == connection &&
+                    restored.loginTime == user.loginTime
+        }
+    }
+
+    def "write less than the whole user"() {
+        given:
+        def user = user()
+
+        expect:
+        serialize(new LoggedInUser(user)).length < serialize(user).length
+        new LoggedInUser(user).toBytes().length < serialize(new LoggedInUser(user)).length
+    }
+
+    def "refuse bytes of another version"() {
+        given:
+        def bytes = new LoggedInUser(user()).toBytes()
+        bytes[0] = 2
+
+        when:
+        LoggedInUser.fromBytes(bytes)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
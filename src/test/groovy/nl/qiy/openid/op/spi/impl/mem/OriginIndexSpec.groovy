@@ -0,0 +1,67 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class OriginIndexSpec extends Specification {
+    def origins = ["https://Example.com:443/", "http://localhost:8080", "https://*.tenant.example.org"]
+    def index = new OriginIndex(origins, 16)
+
+    @Unroll
+    def "origin #origin is #verdict"() {
+        expect:
+        index.contains(origin) == (verdict == "allowed")
+        // the second time the answer may come from the cache
+        index.contains(origin) == (verdict == "allowed")
+
+        where:
+        origin                                 | verdict
+        "https://example.com"                  | "allowed"
+        "https://EXAMPLE.com:443"              | "allowed"
+        "https://example.com."                 | "allowed"
+        "http://example.com"                   | "denied"
+        "https://www.example.com"              | "denied"
+        "http://localhost:8080"                | "allowed"
+        "http://localhost"                     | "denied"
+        "https://a.tenant.example.org"         | "allowed"
+        "https://a.b.tenant.example.org"       | "allowed"
+        "https://tenant.example.org"           | "denied"
+        "https://atenant.example.org"          | "denied"
+        "https://a.tenant.example.org:8443"    | "denied"
+        "https://*.tenant.example.org"         | "denied"
+        "https://user@example.com"             | "denied"
+        "https://example.com:99999999999999"   | "denied"
+        "null"                                 | "denied"
+        null                                   | "denied"
+    }
+
+    def "refuse invalid origins when building"() {
+        when:
+        new OriginIndex([origin], 16)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        origin << ["example.com", "ftp://example.com", "https://*", "https://a.*.example.com", "https://x.com/path"]
+    }
+}
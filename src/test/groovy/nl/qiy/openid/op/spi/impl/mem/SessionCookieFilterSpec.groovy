@@ -0,0 +1,103 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.time.Instant
+
+import javax.servlet.FilterChain
+import javax.servlet.http.Cookie
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import javax.servlet.http.HttpSession
+
+import nl.qiy.oic.op.qiy.QiyOAuthUser
+import nl.qiy.openid.op.spi.impl.config.SessionCookieConfig
+import spock.lang.Specification
+
+class SessionCookieFilterSpec extends Specification {
+    def sessions = new CookieSessions(new SessionCookieConfig(true, null, CookieSessionsSpec.SECRET, null, null, null))
+    def filter = new SessionCookieFilter(sessions)
+    def session = Stub(HttpSession) { getId() >> "session-1" }
+    def user = new LoggedInUser(new QiyOAuthUser("pid-1", URI.create("https://node.example.com/connections/1"),
+            Instant.now()))
+    def cookies = []
+    def response = Stub(HttpServletResponse) {
+        addCookie(_) >> { Cookie cookie -> cookies << cookie }
+    }
+
+    def request(Cookie... sent) {
+        def attributes = [:]
+        Stub(HttpServletRequest) {
+            getSession(false) >> session
+            getCookies() >> sent
+            getAttribute(_) >> { String name -> attributes[name] }
+            setAttribute(_, _) >> { String name, Object value -> attributes[name] = value }
+        }
+    }
+
+    /**
+     * @return what the user session manager would see during the request
+     */
+    def browse(HttpServletRequest request, Closure action = {}) {
+        LoggedInUser seen = null
+        filter.doFilter(request, response, { req, res ->
+            action()
+            seen = sessions.getLoggedIn(session)
+        } as FilterChain)
+        seen
+    }
+
+    def "hand the login of the node's call to the browser's next request"() {
+        given: "the node's call, which has no request of the browser"
+        sessions.store(session, user)
+
+        when:
+        def seen = browse(request())
+
+        then: "the cookie is set and the request already sees the login"
+        seen.subject == "pid-1"
+        cookies*.name == ["qiy_session"]
+
+        when:
+        def cookie = cookies[0]
+        cookies.clear()
+        def seenLater = browse(request(cookie))
+
+        then: "the next request reads the cookie, nothing is pending any more"
+        seenLater.subject == "pid-1"
+        cookies.isEmpty()
+    }
+
+    def "see the logout in the request that did it"() {
+        given:
+        sessions.store(session, user)
+        browse(request())
+        def cookie = cookies[0]
+        cookies.clear()
+
+        when:
+        def seen = browse(request(cookie)) { sessions.clear(session) }
+
+        then:
+        seen == null
+        cookies.size() == 1
+        cookies[0].maxAge == 0
+    }
+}
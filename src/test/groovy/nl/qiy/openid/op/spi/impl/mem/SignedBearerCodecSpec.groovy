@@ -0,0 +1,203 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem
+
+import java.security.KeyPairGenerator
+import java.security.interfaces.RSAPrivateKey
+import java.security.interfaces.RSAPublicKey
+
+import com.nimbusds.jose.JOSEObjectType
+import com.nimbusds.jose.JWSAlgorithm
+import com.nimbusds.jose.JWSHeader
+import com.nimbusds.jose.crypto.RSASSASigner
+import com.nimbusds.jose.jwk.JWK
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jwt.JWTClaimsSet
+import com.nimbusds.jwt.SignedJWT
+
+import nl.qiy.oic.op.domain.IDToken
+import nl.qiy.openid.op.spi.impl.keystore.PooledSigner
+import nl.qiy.openid.op.spi.impl.keystore.PooledVerifier
+import nl.qiy.openid.op.spi.impl.keystore.SecretStoreImpl
+import spock.lang.Shared
+import spock.lang.Specification
+
+class SignedBearerCodecSpec extends Specification {
+    static final String ISSUER = "https://op.example.com"
+    static final long NOW = 1_800_000_000_000L
+
+    @Shared
+    RSAKey key = createKey("k1")
+    @Shared
+    RSAKey otherKey = createKey("k2")
+
+    /**
+     * The keys for the purpose, like the {@link nl.qiy.openid.op.spi.impl.keystore.KeyRegistry} has them, can be
+     * replaced to simulate a reload
+     */
+    List<JWK> keys = [key]
+    def secretStore = new SecretStoreImpl() {
+        @Override
+        JWKSet getJWKSet(String type) {
+            assert type == "bearer"
+            new JWKSet(keys)
+        }
+
+        @Override
+        PooledSigner getSigner(String keyID) {
+            RSAKey found = keys.find { it.keyID == keyID }
+            found == null ? null : new PooledSigner(keyID, JWSAlgorithm.RS256, found.toPrivateKey())
+        }
+
+        @Override
+        PooledVerifier getVerifier(String keyID) {
+            RSAKey found = keys.find { it.keyID == keyID }
+            found == null ? null : new PooledVerifier(keyID, JWSAlgorithm.RS256, found.toPublicKey())
+        }
+    }
+    def codec = new SignedBearerCodec(ISSUER, "bearer", secretStore, false)
+
+    static RSAKey createKey(String keyID) {
+        def generator = KeyPairGenerator.getInstance("RSA")
+        generator.initialize(2048)
+        def pair = generator.generateKeyPair()
+        new RSAKey.Builder((RSAPublicKey) pair.public).privateKey((RSAPrivateKey) pair.private).keyID(keyID)
+                .algorithm(JWSAlgorithm.RS256).build()
+    }
+
+    def idToken() {
+        def result = new IDToken()
+        result.sub = "pid-1"
+        result.exp = NOW.intdiv(1000L) + 300L
+        result
+    }
+
+    def sign(JOSEObjectType type, JWTClaimsSet claims) {
+        def jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).type(type).keyID("k1").build(), claims)
+        jwt.sign(new RSASSASigner(key))
+        jwt.serialize()
+    }
+
+    def "read the ID token from the token that was issued"() {
+        when:
+        def token = codec.issue(idToken(), NOW + 60_000L)
+        def read = codec.read(token, NOW)
+
+        then:
+        SignedBearerCodec.isSelfContained(token)
+        SignedJWT.parse(token).header.type.type == SignedBearerCodec.TYPE
+        read.sub == "pid-1"
+        read.exp == idToken().exp
+    }
+
+    def "refuse an expired token"() {
+        given:
+        def token = codec.issue(idToken(), NOW + 60_000L)
+
+        expect:
+        codec.read(token, NOW + 60_000L) == null
+    }
+
+    def "refuse a token that was tampered with"() {
+        given:
+        def parts = codec.issue(idToken(), NOW + 60_000L).split("\\.")
+        def claims = JWTClaimsSet.parse(new String(Base64.urlDecoder.decode(parts[1]), "UTF-8"))
+        def other = new JWTClaimsSet.Builder(claims).subject("someone-else").build()
+        def payload = Base64.urlEncoder.withoutPadding().encodeToString(other.toString().getBytes("UTF-8"))
+
+        expect:
+        codec.read([parts[0], payload, parts[2]].join("."), NOW) == null
+    }
+
+    def "refuse a token of another issuer"() {
+        given:
+        def other = new SignedBearerCodec("https://other.example.com", "bearer", secretStore, false)
+
+        expect:
+        codec.read(other.issue(idToken(), NOW + 60_000L), NOW) == null
+    }
+
+    def "refuse a token without an ID token"() {
+        given:
+        def claims = new JWTClaimsSet.Builder().issuer(ISSUER).expirationTime(new Date(NOW + 60_000L)).build()
+
+        expect:
+        codec.read(sign(new JOSEObjectType(SignedBearerCodec.TYPE), claims), NOW) == null
+    }
+
+    def "refuse a signed JWT that is not a bearer token, like an ID token"() {
+        given:
+        def claims = new JWTClaimsSet.Builder().issuer(ISSUER).expirationTime(new Date(NOW + 60_000L))
+                .claim("idt", "e30").build()
+
+        expect:
+        codec.read(sign(type, claims), NOW) == null
+
+        where:
+        type << [null, JOSEObjectType.JWT]
+    }
+
+    def "sign with the current key and verify with the key the token names, after the keys were reloaded"() {
+        given:
+        def before = codec.issue(idToken(), NOW + 60_000L)
+
+        when: "a new key comes first, the old one stays for the tokens that are out there"
+        keys = [otherKey, key]
+        def after = codec.issue(idToken(), NOW + 60_000L)
+
+        then:
+        SignedJWT.parse(after).header.keyID == "k2"
+        codec.read(before, NOW).sub == "pid-1"
+        codec.read(after, NOW).sub == "pid-1"
+
+        when: "the old key is gone"
+        keys = [otherKey]
+
+        then:
+        codec.read(before, NOW) == null
+        codec.read(after, NOW).sub == "pid-1"
+    }
+
+    def "read the ID token from an encrypted token"() {
+        given:
+        def encrypting = new SignedBearerCodec(ISSUER, "bearer", secretStore, true)
+
+        when:
+        def token = encrypting.issue(idToken(), NOW + 60_000L)
+
+        then:
+        token.count(".") == 4
+        encrypting.read(token, NOW).sub == "pid-1"
+        codec.read(token, NOW) == null
+    }
+
+    def "count the tokens that are refused"() {
+        given:
+        def before = codec.@rejected.count
+
+        when:
+        codec.read("not.a.token", NOW)
+        codec.read(codec.issue(idToken(), NOW), NOW)
+
+        then:
+        codec.@rejected.count == before + 2
+    }
+}
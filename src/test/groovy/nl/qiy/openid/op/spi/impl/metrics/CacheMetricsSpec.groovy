@@ -0,0 +1,54 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.metrics
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.cache.CacheBuilder
+
+import spock.lang.Specification
+
+class CacheMetricsSpec extends Specification {
+    def original = Metrics.getRegistry()
+
+    def cleanup() {
+        Metrics.setRegistry(original)
+    }
+
+    def "count the removals by cause, in the registry that is set when they happen"() {
+        given: "a cache that is built before the application sets its registry"
+        def cache = CacheBuilder.newBuilder().maximumSize(1)
+                .removalListener(CacheMetrics.countingRemovals("spec")).build()
+        def registry = new MetricRegistry()
+
+        when:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.invalidate("b")
+        Metrics.setRegistry(registry)
+        cache.put("c", 3)
+        cache.put("c", 4)
+
+        then:
+        original.counter("caches.spec.removals.size").count == 1
+        original.counter("caches.spec.removals.explicit").count == 1
+        registry.counter("caches.spec.removals.replaced").count == 1
+        registry.counter("caches.spec.removals.size").count == 0
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.hash.Hashing;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.openid.op.spi.impl.config.BearerStoreConfig;
+
+/**
+ * What a lookup in the {@link BearerStore} costs: the whole get, its parts (hashing the bearer, decoding the ID token)
+ * and, for comparison, reading the same claims from JSON. Not a spec, see {@link Benchmarks} for how to run it.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class BearerStoreBenchmark {
+    private static final int TOKENS = 100_000;
+
+    private BearerStoreBenchmark() {
+        // main only
+    }
+
+    public static void main(String[] args) throws IOException {
+        BearerStore store = new BearerStore(new BearerStoreConfig(Long.valueOf(2L * TOKENS), null, null, null, null));
+        Random random = new Random(1L);
+        String[] bearers = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            bearers[i] = new BigInteger(160, random).toString(32);
+            IDToken idToken = new IDToken();
+            idToken.sub = "pid-" + UUID.randomUUID();
+            idToken.exp = Long.valueOf(System.currentTimeMillis() / 1000L + 600L);
+            store.put(bearers[i], idToken);
+        }
+        IDToken sample = store.get(bearers[0]);
+        byte[] encoded = BearerStore.encode(sample);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", sample.sub);
+        claims.put("exp", sample.exp);
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] json = mapper.writeValueAsBytes(claims);
+        ObjectReader reader = mapper.readerFor(IDToken.class);
+
+        Benchmarks.report("get", Benchmarks.nanosPerCall(TOKENS, i -> store.get(bearers[i]).sub.length()), "");
+        Benchmarks.report("  hash the bearer", Benchmarks.nanosPerCall(TOKENS,
+                i -> Hashing.sha256().hashString(bearers[i], StandardCharsets.UTF_8).asInt()), "");
+        Benchmarks.report("  decode the ID token", Benchmarks.nanosPerCall(TOKENS,
+                i -> BearerStore.decode(encoded).sub.length()), "(" + encoded.length + " bytes)");
+        Benchmarks.report("decode from JSON, for comparison", Benchmarks.nanosPerCall(TOKENS, i -> {
+            try {
+                return reader.<IDToken> readValue(json).sub.length();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), "(" + json.length + " bytes)");
+    }
+}
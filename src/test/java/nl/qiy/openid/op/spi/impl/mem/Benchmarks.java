@@ -0,0 +1,85 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Times small operations for the benchmarks in this package. These are plain mains, not specs, so the build does not
+ * run them; run one with the test classpath, e.g.:
+ * 
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) nl.qiy.openid.op.spi.impl.mem.BearerStoreBenchmark
+ * </pre>
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class Benchmarks {
+    private static final int WARMUP_RUNS = 10;
+    private static final int RUNS = 10;
+
+    private Benchmarks() {
+        // static methods only
+    }
+
+    /**
+     * Runs the operation a number of times per run, after a few warm up runs
+     * 
+     * @param rounds
+     *            calls per run, the operation gets the number of the call
+     * @param operation
+     *            what is timed, the results are summed so that the calls can't be left out
+     * @return the nanoseconds per call of the fastest run
+     */
+    static double nanosPerCall(int rounds, IntUnaryOperator operation) {
+        long sink = 0L;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += operation.applyAsInt(i);
+            }
+            long nanos = System.nanoTime() - start;
+            if (run >= WARMUP_RUNS) {
+                best = Math.min(best, nanos);
+            }
+        }
+        if (sink == 42L) {
+            System.out.println("(sink " + sink + ")");
+        }
+        return (double) best / rounds;
+    }
+
+    /**
+     * Prints a line of the report
+     * 
+     * @param name
+     *            what was timed
+     * @param nanosPerCall
+     *            see {@link #nanosPerCall(int, IntUnaryOperator)}
+     * @param extra
+     *            anything else worth reporting, e.g. a size
+     */
+    static void report(String name, double nanosPerCall, String extra) {
+        System.out.println(String.format("%-36s %10.1f ns/call %s", name, Double.valueOf(nanosPerCall), extra));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.openid.op.spi.impl.mem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.util.UUID;
+
+import nl.qiy.oic.op.qiy.CallbackInput;
+import nl.qiy.oic.op.qiy.QiyOAuthUser;
+
+/**
+ * What a session costs to write and read: the {@link QiyOAuthUser} that sessions used to hold, with the whole
+ * callback, against the {@link LoggedInUser} they hold now, both through Java serialization (as a session store does)
+ * and as plain bytes. Reports the size and the nanoseconds per session. Not a spec, see {@link Benchmarks} for how to
+ * run it.
+ *
+ * @author friso
+ * @since 19 okt. 2026
+ */
+final class LoggedInUserBenchmark {
+    private static final int SESSIONS = 20_000;
+    /**
+     * Roughly the size of the original authentication request, which is the body of the callback
+     */
+    private static final int CALLBACK_BODY_SIZE = 1500;
+
+    private LoggedInUserBenchmark() {
+        // main only
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        // the template constructor is for the login flow only
+        Constructor<QiyOAuthUser> template = QiyOAuthUser.class.getDeclaredConstructor(CallbackInput.class);
+        template.setAccessible(true);
+        QiyOAuthUser[] users = new QiyOAuthUser[SESSIONS];
+        LoggedInUser[] loggedIn = new LoggedInUser[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            String connection = "https://node.example.com/api/connections/" + UUID.randomUUID();
+            CallbackInput cbInput = new CallbackInput("pid-" + UUID.randomUUID(), connection,
+                    new byte[CALLBACK_BODY_SIZE]);
+            users[i] = new QiyOAuthUser(template.newInstance(cbInput));
+            users[i].resetLoginTime();
+            loggedIn[i] = new LoggedInUser(users[i]);
+        }
+        byte[][] serializedUsers = new byte[SESSIONS][];
+        byte[][] serializedLoggedIn = new byte[SESSIONS][];
+        byte[][] bytes = new byte[SESSIONS][];
+
+        Benchmarks.report("QiyOAuthUser, write", Benchmarks.nanosPerCall(SESSIONS, i -> {
+            serializedUsers[i] = serialize(users[i]);
+            return serializedUsers[i].length;
+        }), "(" + serializedUsers[0].length + " bytes)");
+        Benchmarks.report("QiyOAuthUser, read", Benchmarks.nanosPerCall(SESSIONS,
+                i -> ((QiyOAuthUser) deserialize(serializedUsers[i])).getSubject().length()), "");
+        Benchmarks.report("LoggedInUser, write", Benchmarks.nanosPerCall(SESSIONS, i -> {
+            serializedLoggedIn[i] = serialize(loggedIn[i]);
+            return serializedLoggedIn[i].length;
+        }), "(" + serializedLoggedIn[0].length + " bytes)");
+        Benchmarks.report("LoggedInUser, read", Benchmarks.nanosPerCall(SESSIONS,
+                i -> ((LoggedInUser) deserialize(serializedLoggedIn[i])).getSubject().length()), "");
+        Benchmarks.report("LoggedInUser.toBytes", Benchmarks.nanosPerCall(SESSIONS, i -> {
+            bytes[i] = loggedIn[i].toBytes();
+            return bytes[i].length;
+        }), "(" + bytes[0].length + " bytes)");
+        Benchmarks.report("LoggedInUser.fromBytes", Benchmarks.nanosPerCall(SESSIONS,
+                i -> LoggedInUser.fromBytes(bytes[i]).getSubject().length()), "");
+    }
+
+    private static byte[] serialize(Object o) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(o);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}